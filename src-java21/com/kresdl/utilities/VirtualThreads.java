@@ -0,0 +1,28 @@
+package com.kresdl.utilities;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads, Java 21 version.
+ */
+abstract class VirtualThreads {
+
+    /**
+     * Returns true if virtual threads are available.
+     *
+     * @return true
+     */
+    static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return executor service
+     */
+    static ExecutorService newExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+}
@@ -1,9 +1,7 @@
 package com.kresdl.utilities;
 
 import java.awt.Component;
-import java.awt.MouseInfo;
 import java.awt.Point;
-import java.awt.event.HierarchyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
@@ -11,15 +9,32 @@ import java.util.function.Consumer;
 
 /**
  * Mouse base class
+ * <p>
+ * Input comes from an {@link InputSource}, by default the component and
+ * native pointer through {@link AwtInputSource}. Movement is measured from the
+ * screen coordinates of the events themselves, so the pointer is only queried
+ * when the source is shown.
+ * <p>
+ * Motion is tracked in primitive fields without locking or allocating, and is
+ * confined to the thread that delivers events. Read movement there, such as
+ * from a callback, and use {@link #buffer(int)} to hand motion to another
+ * thread.
  */
 public abstract class AbstractMouse {
 
-    Point current, old;
+    int curX, curY, oldX, oldY;
+    private int lastX, lastY;
+    private boolean tracking;
     private long timeStamp;
-    private final Component c;
+    private int interval;
+    private final InputSource source;
 
     AbstractMouse(Component c) {
-        this.c = c;
+        this(new AwtInputSource(c));
+    }
+
+    AbstractMouse(InputSource source) {
+        this.source = source;
     }
 
     /**
@@ -28,16 +43,70 @@ public abstract class AbstractMouse {
      * @return absolute mouse position
      */
     public Point getAbs() {
-        return MouseInfo.getPointerInfo().getLocation();
+        return source.getLocation();
+    }
+
+    /**
+     * Returns input source.
+     *
+     * @return input source
+     */
+    public InputSource getSource() {
+        return source;
+    }
+
+    /**
+     * Sets coalescing interval for move and drag callbacks registered
+     * afterwards. Such a callback then runs at most once per interval, with
+     * the latest event; a trailing call delivers the last event of a burst.
+     * Movement read through getMovement in the callback is the sum of all
+     * coalesced events. Time is measured on the input source's clock, and
+     * trailing calls run on the thread that delivers its events.
+     *
+     * @param interval minimum time between callbacks in milliseconds, or 0
+     * for a callback per event
+     * @return mouse
+     */
+    public AbstractMouse coalesce(int interval) {
+        if (interval < 0) {
+            throw new IllegalArgumentException("Interval < 0");
+        }
+        this.interval = interval;
+        return this;
+    }
+
+    private Consumer<MouseEvent> deliver(Consumer<MouseEvent> f) {
+        return interval == 0 ? f : new Coalescer(source, f, interval);
+    }
+
+    boolean hasMoved(MouseEvent e) {
+        int x = e.getXOnScreen(), y = e.getYOnScreen();
+        if (!tracking) {
+            reset(x, y);
+        }
+        int sx = x - lastX, sy = y - lastY;
+        curX = lastX = x;
+        curY = lastY = y;
+        return test(x - oldX, y - oldY, sx, sy, source.getTime(e));
     }
 
-    synchronized boolean hasMoved() {
-        current = getAbs();
-        Point d = Misc.pointSub(current, old);
-        return test(d);
+    private void reset(int x, int y) {
+        oldX = lastX = x;
+        oldY = lastY = y;
+        tracking = true;
     }
 
-    abstract boolean test(Point d);
+    /**
+     * Tests a motion event.
+     *
+     * @param dx horizontal movement since last read
+     * @param dy vertical movement since last read
+     * @param sx horizontal movement since the previous event
+     * @param sy vertical movement since the previous event
+     * @param time event time on the source's clock
+     * @return true if the movement should be reported
+     */
+    abstract boolean test(int dx, int dy, int sx, int sy, long time);
 
     /**
      * On mouse click.
@@ -47,18 +116,18 @@ public abstract class AbstractMouse {
      * @return mouse
      */
     public AbstractMouse onClick(int button, Consumer<MouseEvent> f) {
-        c.addMouseListener(new MouseAdapter() {
+        source.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 if (e.getButton() == MouseEvent.BUTTON1 + button) {
-                    timeStamp = System.currentTimeMillis();
+                    timeStamp = e.getWhen();
                 }
             }
 
             @Override
             public void mouseReleased(MouseEvent e) {
                 if (e.getButton() == MouseEvent.BUTTON1 + button) {
-                    if (System.currentTimeMillis() - timeStamp < 100) {
+                    if (e.getWhen() - timeStamp < 100) {
                         f.accept(e);
                     }
                 }
@@ -75,7 +144,7 @@ public abstract class AbstractMouse {
      * @return mouse
      */
     public AbstractMouse onPress(int button, Consumer<MouseEvent> f) {
-        c.addMouseListener(new MouseAdapter() {
+        source.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 if (e.getButton() == MouseEvent.BUTTON1 + button) {
@@ -94,7 +163,7 @@ public abstract class AbstractMouse {
      * @return mouse
      */
     public AbstractMouse onRelease(int button, Consumer<MouseEvent> f) {
-        c.addMouseListener(new MouseAdapter() {
+        source.addMouseListener(new MouseAdapter() {
             @Override
             public void mouseReleased(MouseEvent e) {
                 if (e.getButton() == MouseEvent.BUTTON1 + button) {
@@ -112,23 +181,74 @@ public abstract class AbstractMouse {
      * @return mouse
      */
     public AbstractMouse onMove(Consumer<MouseEvent> f) {
-        c.addHierarchyListener(e -> {
-            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
-                old = getAbs();
-            }
+        Consumer<MouseEvent> g = deliver(f);
+        source.addShowingListener(() -> {
+            Point p = getAbs();
+            reset(p.x, p.y);
         });
 
-        c.addMouseMotionListener(new MouseMotionAdapter() {
+        source.addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseMoved(MouseEvent e) {
-                if (hasMoved()) {
-                    f.accept(e);
+                if (hasMoved(e)) {
+                    g.accept(e);
                 }
             }
         });
         return this;
     }
 
+    /**
+     * Records the delta of every mouse motion event, drags included, into a
+     * new lock-free ring for another thread to drain. Deltas are taken from
+     * the screen coordinates of the events rather than by querying the
+     * pointer, and are stamped with the event time on the input source's
+     * clock.
+     *
+     * @param capacity ring capacity
+     * @return ring
+     */
+    public MouseRing buffer(int capacity) {
+        RingFeed f = new RingFeed(source, new MouseRing(capacity));
+        source.addShowingListener(() -> f.valid = false);
+        source.addMouseMotionListener(f);
+        return f.ring;
+    }
+
+    /**
+     * Records press, release, move and drag events into a log, stamped with
+     * the event time on the input source's clock.
+     *
+     * @param log input log
+     * @return mouse
+     */
+    public AbstractMouse record(InputLog log) {
+        MouseAdapter a = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                log.append(source.getTime(e), e);
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                log.append(source.getTime(e), e);
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                log.append(source.getTime(e), e);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                log.append(source.getTime(e), e);
+            }
+        };
+        source.addMouseListener(a);
+        source.addMouseMotionListener(a);
+        return this;
+    }
+
     /**
      * On mouse drag.
      *
@@ -137,16 +257,17 @@ public abstract class AbstractMouse {
      * @return mouse
      */
     public AbstractMouse onDrag(int button, Consumer<MouseEvent> f) {
-        c.addMouseListener(new MouseAdapter() {
+        Consumer<MouseEvent> g = deliver(f);
+        source.addMouseListener(new MouseAdapter() {
             @Override
             public void mousePressed(MouseEvent e) {
                 if (e.getButton() == MouseEvent.BUTTON1 + button) {
-                    old = getAbs();
+                    reset(e.getXOnScreen(), e.getYOnScreen());
                 }
             }
         });
 
-        c.addMouseMotionListener(new MouseMotionAdapter() {
+        source.addMouseMotionListener(new MouseMotionAdapter() {
             @Override
             public void mouseDragged(MouseEvent e) {
                 int mask;
@@ -162,12 +283,100 @@ public abstract class AbstractMouse {
                 }
 
                 if (e.getModifiersEx() == mask) {
-                    if (hasMoved()) {
-                        f.accept(e);
+                    if (hasMoved(e)) {
+                        g.accept(e);
                     }
                 }
             }
         });
         return this;
     }
+
+    /**
+     * Times events on the source's clock and schedules trailing calls through
+     * the source, so all state is confined to the thread that delivers events.
+     */
+    private static class Coalescer implements Consumer<MouseEvent> {
+
+        private final InputSource source;
+        private final Consumer<MouseEvent> f;
+        private final long interval;
+        private MouseEvent pending;
+        private long last;
+        private boolean primed, scheduled;
+
+        Coalescer(InputSource source, Consumer<MouseEvent> f, int interval) {
+            this.source = source;
+            this.f = f;
+            this.interval = interval * 1_000_000L;
+        }
+
+        @Override
+        public void accept(MouseEvent e) {
+            pending = e;
+            long now = source.getTime(e);
+            if (!primed || now - last >= interval) {
+                flush(now);
+            } else if (!scheduled) {
+                scheduled = true;
+                source.schedule(this::trailing, last + interval - now);
+            }
+        }
+
+        private void trailing() {
+            scheduled = false;
+            if (pending == null) {
+                return;
+            }
+            long now = source.getTime();
+            long wait = last + interval - now;
+            if (wait > 0) {
+                scheduled = true;
+                source.schedule(this::trailing, wait);
+            } else {
+                flush(now);
+            }
+        }
+
+        private void flush(long now) {
+            MouseEvent e = pending;
+            pending = null;
+            primed = true;
+            last = now;
+            f.accept(e);
+        }
+    }
+
+    private static class RingFeed extends MouseMotionAdapter {
+
+        final MouseRing ring;
+        boolean valid;
+        private final InputSource source;
+        private int x, y;
+
+        RingFeed(InputSource source, MouseRing ring) {
+            this.source = source;
+            this.ring = ring;
+        }
+
+        @Override
+        public void mouseMoved(MouseEvent e) {
+            sample(e);
+        }
+
+        @Override
+        public void mouseDragged(MouseEvent e) {
+            sample(e);
+        }
+
+        private void sample(MouseEvent e) {
+            int ex = e.getXOnScreen(), ey = e.getYOnScreen();
+            if (valid && (ex != x || ey != y)) {
+                ring.offer(source.getTime(e), ex - x, ey - y);
+            }
+            x = ex;
+            y = ey;
+            valid = true;
+        }
+    }
 }
@@ -0,0 +1,124 @@
+package com.kresdl.utilities;
+
+import java.awt.Component;
+import java.awt.MouseInfo;
+import java.awt.Point;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.util.Arrays;
+
+import javax.swing.Timer;
+
+/**
+ * Input source backed by an AWT component and the native pointer. The clock
+ * is the system time in milliseconds that AWT stamps events with, and
+ * scheduled tasks run on the event dispatch thread. All scheduled tasks share
+ * one Swing timer, armed for the earliest of them.
+ */
+public class AwtInputSource implements InputSource {
+
+    private final Component c;
+    private final Timer timer;
+    private Runnable[] tasks = new Runnable[4];
+    private long[] due = new long[4];
+    private int count;
+
+    /**
+     * Constructs input source.
+     *
+     * @param c component
+     */
+    public AwtInputSource(Component c) {
+        this.c = c;
+        timer = new Timer(0, e -> runDue());
+        timer.setRepeats(false);
+    }
+
+    /**
+     * Returns component.
+     *
+     * @return component
+     */
+    public Component getComponent() {
+        return c;
+    }
+
+    @Override
+    public void addMouseListener(MouseListener l) {
+        c.addMouseListener(l);
+    }
+
+    @Override
+    public void addMouseMotionListener(MouseMotionListener l) {
+        c.addMouseMotionListener(l);
+    }
+
+    @Override
+    public void addShowingListener(Runnable r) {
+        c.addHierarchyListener(e -> {
+            if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0) {
+                r.run();
+            }
+        });
+    }
+
+    @Override
+    public Point getLocation() {
+        return MouseInfo.getPointerInfo().getLocation();
+    }
+
+    @Override
+    public long getTime() {
+        return System.currentTimeMillis() * 1_000_000L;
+    }
+
+    @Override
+    public synchronized void schedule(Runnable r, long delay) {
+        if (count == tasks.length) {
+            tasks = Arrays.copyOf(tasks, 2 * count);
+            due = Arrays.copyOf(due, 2 * count);
+        }
+        tasks[count] = r;
+        due[count++] = getTime() + Math.max(0, delay);
+        arm();
+    }
+
+    private int earliest() {
+        int k = 0;
+        for (int i = 1; i < count; i++) {
+            if (due[i] - due[k] < 0) {
+                k = i;
+            }
+        }
+        return k;
+    }
+
+    private void arm() {
+        if (count == 0) {
+            timer.stop();
+            return;
+        }
+        long wait = Math.max(0, due[earliest()] - getTime());
+        timer.setInitialDelay((int) Math.min(Integer.MAX_VALUE, (wait + 999_999) / 1_000_000));
+        timer.restart();
+    }
+
+    private void runDue() {
+        for (;;) {
+            Runnable r;
+            synchronized (this) {
+                int k = earliest();
+                if (count == 0 || due[k] - getTime() > 0) {
+                    arm();
+                    return;
+                }
+                r = tasks[k];
+                tasks[k] = tasks[--count];
+                due[k] = due[count];
+                tasks[count] = null;
+            }
+            r.run();
+        }
+    }
+}
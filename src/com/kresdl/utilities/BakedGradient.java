@@ -0,0 +1,192 @@
+package com.kresdl.utilities;
+
+import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+
+/**
+ * Immutable lookup table of a gradient, sampled at evenly spaced positions
+ * and stored as packed 0xAARRGGBB integers.
+ */
+public final class BakedGradient {
+
+    private final int[] lut;
+    private final double scale;
+    final int version;
+
+    BakedGradient(Gradient g, int samples, int version) {
+        if (samples < 2) {
+            throw new IllegalArgumentException("samples < 2");
+        }
+        this.version = version;
+        lut = new int[samples];
+        scale = samples - 1;
+        for (int i = 0; i < samples; i++) {
+            lut[i] = argb(g, i / scale);
+        }
+    }
+
+    /**
+     * Constructs a baked gradient from the current state of a gradient. The
+     * result is not updated when the gradient changes; use
+     * {@link Gradient#bake(int)} for a cached table that is.
+     *
+     * @param g gradient
+     * @param samples number of samples, at least 2
+     */
+    public BakedGradient(Gradient g, int samples) {
+        this(g, samples, -1);
+    }
+
+    private static int argb(Gradient g, double x) {
+        Map.Entry<Double, Color> a = g.lowerEntry(x);
+        Map.Entry<Double, Color> b = g.ceilingEntry(x);
+        double p = (x - a.getKey()) / (b.getKey() - a.getKey());
+        Color c1 = a.getValue();
+        Color c2 = b.getValue();
+        return Misc.toARGB(channel(c1.getRed(), c2.getRed(), p),
+                channel(c1.getGreen(), c2.getGreen(), p),
+                channel(c1.getBlue(), c2.getBlue(), p),
+                channel(c1.getAlpha(), c2.getAlpha(), p));
+    }
+
+    private static int channel(int a, int b, double p) {
+        return Math.max(Math.min((int) (p * (b - a) + a), 255), 0);
+    }
+
+    /**
+     * Returns number of samples.
+     *
+     * @return number of samples
+     */
+    public int size() {
+        return lut.length;
+    }
+
+    /**
+     * Returns color of nearest sample in integer format 0xAARRGGBB. Position
+     * is clamped to range 0-1.
+     *
+     * @param g position
+     * @return 0xAARRGGBB
+     */
+    public int sampleARGB(double g) {
+        return lut[(int) (Misc.sat(g) * scale + 0.5d)];
+    }
+
+    /**
+     * Returns sample at index.
+     *
+     * @param i index, 0 to size() - 1
+     * @return 0xAARRGGBB
+     */
+    public int get(int i) {
+        return lut[i];
+    }
+
+    /**
+     * Colorizes values into packed 0xAARRGGBB pixels. Values are clamped to
+     * range 0-1.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination pixels
+     * @param dstOff offset into destination array
+     * @param len number of values
+     */
+    public void colorize(double[] src, int srcOff, int[] dst, int dstOff, int len) {
+        final int[] t = lut;
+        final double s = scale;
+        for (int i = 0; i < len; i++) {
+            double g = Math.min(Math.max(src[srcOff + i], 0.0d), 1.0d);
+            dst[dstOff + i] = t[(int) (g * s + 0.5d)];
+        }
+    }
+
+    /**
+     * Colorizes values into packed 0xAARRGGBB pixels. Values are clamped to
+     * range 0-1.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination pixels
+     * @param dstOff offset into destination array
+     * @param len number of values
+     */
+    public void colorize(float[] src, int srcOff, int[] dst, int dstOff, int len) {
+        final int[] t = lut;
+        final float s = (float) scale;
+        for (int i = 0; i < len; i++) {
+            float g = Math.min(Math.max(src[srcOff + i], 0.0f), 1.0f);
+            dst[dstOff + i] = t[(int) (g * s + 0.5f)];
+        }
+    }
+
+    /**
+     * Colorizes values into 4-byte pixels at absolute positions of a byte
+     * buffer. The buffer's position and byte order are left unchanged.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination buffer
+     * @param dstOff byte offset into destination buffer
+     * @param len number of values
+     * @param layout byte layout of destination pixels
+     */
+    public void colorize(double[] src, int srcOff, ByteBuffer dst, int dstOff, int len, Layout layout) {
+        final int[] t = lut;
+        final double s = scale;
+        final ByteBuffer b = dst.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (layout == Layout.BGRA) {
+            for (int i = 0; i < len; i++) {
+                double g = Math.min(Math.max(src[srcOff + i], 0.0d), 1.0d);
+                b.putInt(dstOff + (i << 2), t[(int) (g * s + 0.5d)]);
+            }
+        } else {
+            for (int i = 0; i < len; i++) {
+                double g = Math.min(Math.max(src[srcOff + i], 0.0d), 1.0d);
+                b.putInt(dstOff + (i << 2), swapRB(t[(int) (g * s + 0.5d)]));
+            }
+        }
+    }
+
+    /**
+     * Colorizes values into 4-byte pixels at absolute positions of a byte
+     * buffer. The buffer's position and byte order are left unchanged.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination buffer
+     * @param dstOff byte offset into destination buffer
+     * @param len number of values
+     * @param layout byte layout of destination pixels
+     */
+    public void colorize(float[] src, int srcOff, ByteBuffer dst, int dstOff, int len, Layout layout) {
+        final int[] t = lut;
+        final float s = (float) scale;
+        final ByteBuffer b = dst.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (layout == Layout.BGRA) {
+            for (int i = 0; i < len; i++) {
+                float g = Math.min(Math.max(src[srcOff + i], 0.0f), 1.0f);
+                b.putInt(dstOff + (i << 2), t[(int) (g * s + 0.5f)]);
+            }
+        } else {
+            for (int i = 0; i < len; i++) {
+                float g = Math.min(Math.max(src[srcOff + i], 0.0f), 1.0f);
+                b.putInt(dstOff + (i << 2), swapRB(t[(int) (g * s + 0.5f)]));
+            }
+        }
+    }
+
+    private static int swapRB(int c) {
+        return (c & 0xff00ff00) | ((c >> 16) & 0xff) | ((c & 0xff) << 16);
+    }
+
+    /**
+     * Byte order of pixels written to byte buffers.
+     */
+    public enum Layout {
+        RGBA, BGRA
+    }
+}
@@ -0,0 +1,163 @@
+package com.kresdl.utilities;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Batch of small tasks executed in chunks. A few workers claim consecutive
+ * chunks of tasks from a shared cursor and run them back to back, so the cost
+ * of queueing and completion tracking is paid per worker rather than per
+ * task. The batch itself is the only completion handle.
+ * <p>
+ * Once a task fails or the batch is cancelled, no further chunks are claimed.
+ * Chunks already claimed run to completion.
+ */
+public class Batch implements Future<Void> {
+
+    private final Runnable[] tasks;
+    private final int chunk;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final CountDownLatch latch;
+    private volatile boolean stopped;
+
+    Batch(Runnable[] tasks, int chunk, int workers) {
+        this.tasks = tasks;
+        this.chunk = chunk;
+        latch = new CountDownLatch(workers);
+    }
+
+    /**
+     * Claims and runs chunks until the batch is exhausted or stopped. A
+     * failure is recorded for the batch and rethrown, so that the worker is
+     * counted as failed.
+     */
+    void work() {
+        int n = tasks.length;
+        try {
+            while (!stopped) {
+                int i = cursor.getAndAdd(chunk);
+                if (i >= n || i < 0) {
+                    break;
+                }
+                int e = Math.min(n, i + chunk), s = i;
+                try {
+                    for (; i < e; i++) {
+                        tasks[i].run();
+                    }
+                } finally {
+                    completed.addAndGet(i - s);
+                }
+            }
+        } catch (Throwable t) {
+            if (!failure.compareAndSet(null, t)) {
+                Throwable primary = failure.get();
+                if (primary != t) {
+                    primary.addSuppressed(t);
+                }
+            }
+            stopped = true;
+            throw t;
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Stops a worker that could not be started.
+     */
+    void abandon() {
+        stopped = true;
+        latch.countDown();
+    }
+
+    /**
+     * Returns number of tasks in the batch.
+     *
+     * @return number of tasks
+     */
+    public int size() {
+        return tasks.length;
+    }
+
+    /**
+     * Returns number of tasks that have completed.
+     *
+     * @return number of completed tasks
+     */
+    public long getCompletedCount() {
+        return completed.get();
+    }
+
+    /**
+     * Stops claiming chunks. Chunks already claimed run to completion
+     * regardless of mayInterruptIfRunning.
+     *
+     * @param mayInterruptIfRunning ignored
+     * @return false if the batch had already completed
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (latch.getCount() == 0 || !cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        stopped = true;
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    @Override
+    public boolean isDone() {
+        return cancelled.get() || latch.getCount() == 0;
+    }
+
+    /**
+     * Waits for the batch to complete.
+     *
+     * @return null
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if a task failed, with the first failure as
+     * cause and failures in other workers suppressed by it
+     * @throws CancellationException if the batch was cancelled
+     */
+    @Override
+    public Void get() throws InterruptedException, ExecutionException {
+        if (!cancelled.get()) {
+            latch.await();
+        }
+        return result();
+    }
+
+    @Override
+    public Void get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!cancelled.get() && !latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+        return result();
+    }
+
+    private Void result() throws ExecutionException {
+        if (cancelled.get()) {
+            throw new CancellationException();
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            throw new ExecutionException(t);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,258 @@
+package com.kresdl.utilities;
+
+/**
+ * Allocation-free cubic bezier flattening into primitive coordinate arrays.
+ * Curves are evaluated by forward differencing. The adaptive variants pick the
+ * number of segments from the curvature of the control polygon so that the
+ * flattened curve deviates at most a given tolerance from the true curve.
+ */
+public abstract class Bezier {
+
+    /**
+     * Upper bound on the number of segments chosen by the adaptive variants.
+     */
+    public static final int MAX_SEGMENTS = 4096;
+
+    /**
+     * Returns the number of segments required to flatten a cubic curve
+     * within a tolerance, according to Wang's formula.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of first control point
+     * @param y1 y of first control point
+     * @param x2 x of second control point
+     * @param y2 y of second control point
+     * @param x3 x of end point
+     * @param y3 y of end point
+     * @param tolerance maximum distance from curve, in pixels
+     * @return number of segments, 1 to MAX_SEGMENTS
+     * @throws IllegalArgumentException if tolerance is not positive or a
+     * coordinate is not finite
+     */
+    public static int segments(double x0, double y0, double x1, double y1,
+            double x2, double y2, double x3, double y3, double tolerance) {
+        double ax = x0 - 2 * x1 + x2, ay = y0 - 2 * y1 + y2;
+        double bx = x1 - 2 * x2 + x3, by = y1 - 2 * y2 + y3;
+        double m = Math.sqrt(Math.max(ax * ax + ay * ay, bx * bx + by * by));
+        return count(0.75d * m, tolerance);
+    }
+
+    /**
+     * Returns the number of segments required to flatten a quadratic curve
+     * within a tolerance, according to Wang's formula.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of control point
+     * @param y1 y of control point
+     * @param x2 x of end point
+     * @param y2 y of end point
+     * @param tolerance maximum distance from curve, in pixels
+     * @return number of segments, 1 to MAX_SEGMENTS
+     * @throws IllegalArgumentException if tolerance is not positive or a
+     * coordinate is not finite
+     */
+    public static int segments(double x0, double y0, double x1, double y1,
+            double x2, double y2, double tolerance) {
+        double ax = x0 - 2 * x1 + x2, ay = y0 - 2 * y1 + y2;
+        return count(0.25d * Math.sqrt(ax * ax + ay * ay), tolerance);
+    }
+
+    static int count(double m, double tolerance) {
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("Tolerance <= 0");
+        }
+        if (!Double.isFinite(m)) {
+            throw new IllegalArgumentException("Coordinates not finite");
+        }
+        double n = Math.ceil(Math.sqrt(m / tolerance));
+        return n < 1.0d ? 1 : (n > MAX_SEGMENTS ? MAX_SEGMENTS : (int) n);
+    }
+
+    private static void check(int segments) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("Segments < 1");
+        }
+    }
+
+    /**
+     * Flattens a cubic curve into interleaved x, y coordinates.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of first control point
+     * @param y1 y of first control point
+     * @param x2 x of second control point
+     * @param y2 y of second control point
+     * @param x3 x of end point
+     * @param y3 y of end point
+     * @param segments number of segments, at least 1
+     * @param xy destination array of size at least off + 2 * (segments + 1)
+     * @param off offset into destination array
+     * @return number of points written, segments + 1
+     * @throws IllegalArgumentException if segments is less than 1
+     */
+    public static int cubic(double x0, double y0, double x1, double y1,
+            double x2, double y2, double x3, double y3, int segments, float[] xy, int off) {
+        check(segments);
+        double h = 1.0d / segments, h2 = h * h, h3 = h2 * h;
+        double ax = 3 * (x1 - x2) + x3 - x0, ay = 3 * (y1 - y2) + y3 - y0;
+        double bx = 3 * (x0 - 2 * x1 + x2), by = 3 * (y0 - 2 * y1 + y2);
+        double cx = 3 * (x1 - x0), cy = 3 * (y1 - y0);
+        double fx = x0, fy = y0;
+        double dfx = ax * h3 + bx * h2 + cx * h, dfy = ay * h3 + by * h2 + cy * h;
+        double ddfx = 6 * ax * h3 + 2 * bx * h2, ddfy = 6 * ay * h3 + 2 * by * h2;
+        double dddfx = 6 * ax * h3, dddfy = 6 * ay * h3;
+        for (int i = 0; i < segments; i++) {
+            xy[off++] = (float) fx;
+            xy[off++] = (float) fy;
+            fx += dfx;
+            fy += dfy;
+            dfx += ddfx;
+            dfy += ddfy;
+            ddfx += dddfx;
+            ddfy += dddfy;
+        }
+        xy[off++] = (float) x3;
+        xy[off] = (float) y3;
+        return segments + 1;
+    }
+
+    /**
+     * Flattens a cubic curve into separate integer x and y arrays, such as
+     * the point arrays of a Polygon.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of first control point
+     * @param y1 y of first control point
+     * @param x2 x of second control point
+     * @param y2 y of second control point
+     * @param x3 x of end point
+     * @param y3 y of end point
+     * @param segments number of segments, at least 1
+     * @param xs destination x array of size at least off + segments + 1
+     * @param ys destination y array of size at least off + segments + 1
+     * @param off offset into destination arrays
+     * @return number of points written, segments + 1
+     * @throws IllegalArgumentException if segments is less than 1
+     */
+    public static int cubic(double x0, double y0, double x1, double y1,
+            double x2, double y2, double x3, double y3, int segments, int[] xs, int[] ys, int off) {
+        check(segments);
+        double h = 1.0d / segments, h2 = h * h, h3 = h2 * h;
+        double ax = 3 * (x1 - x2) + x3 - x0, ay = 3 * (y1 - y2) + y3 - y0;
+        double bx = 3 * (x0 - 2 * x1 + x2), by = 3 * (y0 - 2 * y1 + y2);
+        double cx = 3 * (x1 - x0), cy = 3 * (y1 - y0);
+        double fx = x0, fy = y0;
+        double dfx = ax * h3 + bx * h2 + cx * h, dfy = ay * h3 + by * h2 + cy * h;
+        double ddfx = 6 * ax * h3 + 2 * bx * h2, ddfy = 6 * ay * h3 + 2 * by * h2;
+        double dddfx = 6 * ax * h3, dddfy = 6 * ay * h3;
+        for (int i = 0; i < segments; i++, off++) {
+            xs[off] = (int) fx;
+            ys[off] = (int) fy;
+            fx += dfx;
+            fy += dfy;
+            dfx += ddfx;
+            dfy += ddfy;
+            ddfx += dddfx;
+            ddfy += dddfy;
+        }
+        xs[off] = (int) x3;
+        ys[off] = (int) y3;
+        return segments + 1;
+    }
+
+    /**
+     * Flattens a cubic curve into interleaved x, y coordinates, using as many
+     * segments as required by the tolerance. Use
+     * {@link #segments(double, double, double, double, double, double, double, double, double)}
+     * to size the destination array.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of first control point
+     * @param y1 y of first control point
+     * @param x2 x of second control point
+     * @param y2 y of second control point
+     * @param x3 x of end point
+     * @param y3 y of end point
+     * @param tolerance maximum distance from curve, in pixels
+     * @param xy destination array
+     * @param off offset into destination array
+     * @return number of points written
+     * @throws IllegalArgumentException if tolerance is not positive or a
+     * coordinate is not finite
+     */
+    public static int cubicAdaptive(double x0, double y0, double x1, double y1,
+            double x2, double y2, double x3, double y3, double tolerance, float[] xy, int off) {
+        int n = segments(x0, y0, x1, y1, x2, y2, x3, y3, tolerance);
+        return cubic(x0, y0, x1, y1, x2, y2, x3, y3, n, xy, off);
+    }
+
+    /**
+     * Flattens a cubic curve into separate integer x and y arrays, using as
+     * many segments as required by the tolerance. Use
+     * {@link #segments(double, double, double, double, double, double, double, double, double)}
+     * to size the destination arrays.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of first control point
+     * @param y1 y of first control point
+     * @param x2 x of second control point
+     * @param y2 y of second control point
+     * @param x3 x of end point
+     * @param y3 y of end point
+     * @param tolerance maximum distance from curve, in pixels
+     * @param xs destination x array
+     * @param ys destination y array
+     * @param off offset into destination arrays
+     * @return number of points written
+     * @throws IllegalArgumentException if tolerance is not positive or a
+     * coordinate is not finite
+     */
+    public static int cubicAdaptive(double x0, double y0, double x1, double y1,
+            double x2, double y2, double x3, double y3, double tolerance, int[] xs, int[] ys, int off) {
+        int n = segments(x0, y0, x1, y1, x2, y2, x3, y3, tolerance);
+        return cubic(x0, y0, x1, y1, x2, y2, x3, y3, n, xs, ys, off);
+    }
+
+    /**
+     * Flattens a quadratic curve into interleaved x, y coordinates.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of control point
+     * @param y1 y of control point
+     * @param x2 x of end point
+     * @param y2 y of end point
+     * @param segments number of segments, at least 1
+     * @param xy destination array of size at least off + 2 * (segments + 1)
+     * @param off offset into destination array
+     * @return number of points written, segments + 1
+     * @throws IllegalArgumentException if segments is less than 1
+     */
+    public static int quad(double x0, double y0, double x1, double y1,
+            double x2, double y2, int segments, float[] xy, int off) {
+        check(segments);
+        double h = 1.0d / segments, h2 = h * h;
+        double ax = x0 - 2 * x1 + x2, ay = y0 - 2 * y1 + y2;
+        double bx = 2 * (x1 - x0), by = 2 * (y1 - y0);
+        double fx = x0, fy = y0;
+        double dfx = ax * h2 + bx * h, dfy = ay * h2 + by * h;
+        double ddfx = 2 * ax * h2, ddfy = 2 * ay * h2;
+        for (int i = 0; i < segments; i++) {
+            xy[off++] = (float) fx;
+            xy[off++] = (float) fy;
+            fx += dfx;
+            fy += dfy;
+            dfx += ddfx;
+            dfy += ddfy;
+        }
+        xy[off++] = (float) x2;
+        xy[off] = (float) y2;
+        return segments + 1;
+    }
+}
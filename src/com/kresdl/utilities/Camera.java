@@ -1,20 +1,51 @@
 package com.kresdl.utilities;
 
+import java.nio.FloatBuffer;
+
 import com.kresdl.geometry.Matrix;
 import com.kresdl.geometry.Vec;
 import com.kresdl.geometry.Vec2;
 
 /**
  * Camera
+ * <p>
+ * Moves, rotations and changes to the projection only update primitive state
+ * and mark the affected matrices as dirty. Matrices are rebuilt once, on
+ * demand, by the getters. The primitive matrices returned through
+ * {@link #getMatrix(double[])} and the frustum are kept in preallocated
+ * storage and are the single source of truth. The Vec and Matrix objects,
+ * including the protected fields, are derived from them and only recreated
+ * when requested through {@link #getPos()}, {@link #getView()},
+ * {@link #getProj()} or {@link #getMatrix()} after a change.
+ * <p>
+ * A camera must only be used by one thread at a time. To share it with other
+ * threads, the owning thread calls {@link #publish()}, and readers obtain the
+ * latest immutable snapshot through {@link #getState()} without locking.
  */
 public class Camera {
 
+    /**
+     * Destination spaces of batch transforms.
+     */
+    public static final int CLIP = 0, NDC = 1, SCREEN = 2;
+
     protected Vec pos, target, dir;
     protected double aspectRatio, zNear, zFar, fov;
     protected boolean glSpace;
 
     protected Matrix view, proj, matrix;
 
+    private final double[] viewData = new double[16],
+            projData = new double[16],
+            matrixData = new double[16];
+    private final Frustum frustum = new Frustum();
+
+    private double px, py, pz, dx, dy, dz;
+    private boolean viewDirty, projDirty;
+    private int revision, vecRevision, matrixRevision;
+    private Vec loadedPos, loadedTarget;
+    private volatile CameraState state;
+
     /**
      * Constructs camera with given parameters.
      *
@@ -36,23 +67,113 @@ public class Camera {
         this.fov = fov;
         this.glSpace = glSpace;
 
-        if (glSpace) {
-            view = Matrix.glView(pos, target);
-            proj = Matrix.glProj(zNear, zFar, fov, aspectRatio);
-        } else {
-            view = Matrix.view(pos, target);
-            proj = Matrix.proj(zNear, zFar, fov, aspectRatio);
-        }
-        matrix = Matrix.mul(view, proj);
+        projDirty = true;
+        load();
+        validateMatrices();
+        publish();
     }
 
+    /**
+     * Rebuilds view and view-projection matrices after the pos or target
+     * field has been assigned. Subclasses that assign these fields directly
+     * must call this method afterwards. A field that was not reassigned keeps
+     * the current state, including pending moves and rotations. The Vec and
+     * Matrix objects are rebuilt on demand, as after any other change.
+     */
     protected void buildTransform() {
-        if (glSpace) {
-            view = Matrix.glView(pos, target);
-        } else {
-            view = Matrix.view(pos, target);
+        if (pos != loadedPos || target != loadedTarget) {
+            load();
+        }
+        validate();
+    }
+
+    private void load() {
+        double tx = px + dx, ty = py + dy, tz = pz + dz;
+        if (pos != loadedPos) {
+            px = pos.x;
+            py = pos.y;
+            pz = pos.z;
+        }
+        if (target != loadedTarget) {
+            tx = target.x;
+            ty = target.y;
+            tz = target.z;
+        }
+        double x = tx - px, y = ty - py, z = tz - pz;
+        double l = 1.0d / Math.sqrt(x * x + y * y + z * z);
+        dx = x * l;
+        dy = y * l;
+        dz = z * l;
+        loadedPos = pos;
+        loadedTarget = target;
+        viewDirty = true;
+    }
+
+    private void validate() {
+        if (viewDirty) {
+            Mat4.view(viewData, px, py, pz, px + dx, py + dy, pz + dz, glSpace);
+        }
+        if (projDirty) {
+            Mat4.proj(projData, zNear, zFar, fov, aspectRatio, glSpace);
+        }
+        if (viewDirty || projDirty) {
+            Mat4.mul(viewData, projData, matrixData);
+            frustum.set(matrixData, glSpace);
+            viewDirty = false;
+            projDirty = false;
+            revision++;
+        }
+    }
+
+    private void validateVec() {
+        validate();
+        if (vecRevision != revision) {
+            pos = new Vec(px, py, pz);
+            dir = new Vec(dx, dy, dz);
+            target = new Vec(px + dx, py + dy, pz + dz);
+            loadedPos = pos;
+            loadedTarget = target;
+            vecRevision = revision;
         }
-        matrix = Matrix.mul(view, proj);
+    }
+
+    private void validateMatrices() {
+        validateVec();
+        if (matrixRevision != revision) {
+            if (glSpace) {
+                view = Matrix.glView(pos, target);
+                proj = Matrix.glProj(zNear, zFar, fov, aspectRatio);
+            } else {
+                view = Matrix.view(pos, target);
+                proj = Matrix.proj(zNear, zFar, fov, aspectRatio);
+            }
+            matrix = Matrix.mul(view, proj);
+            matrixRevision = revision;
+        }
+    }
+
+    /**
+     * Publishes an immutable snapshot of the current state, replacing the one
+     * returned by {@link #getState()}.
+     *
+     * @return published snapshot
+     */
+    public CameraState publish() {
+        validate();
+        CameraState s = new CameraState(px, py, pz, dx, dy, dz, aspectRatio, zNear, zFar, fov, glSpace,
+                viewData, projData, matrixData, frustum);
+        state = s;
+        return s;
+    }
+
+    /**
+     * Returns the most recently published snapshot. Safe to call from any
+     * thread.
+     *
+     * @return camera state
+     */
+    public CameraState getState() {
+        return state;
     }
 
     /**
@@ -61,9 +182,21 @@ public class Camera {
      * @param movement new position relative to current position
      */
     public void move(Vec movement) {
-        pos = Vec.add(pos, movement);
-        target = Vec.add(pos, dir);
-        buildTransform();
+        move(movement.x, movement.y, movement.z);
+    }
+
+    /**
+     * Move camera.
+     *
+     * @param x movement along x-axis
+     * @param y movement along y-axis
+     * @param z movement along z-axis
+     */
+    public void move(double x, double y, double z) {
+        px += x;
+        py += y;
+        pz += z;
+        viewDirty = true;
     }
 
     /**
@@ -73,9 +206,62 @@ public class Camera {
      * @param sensitivity sensitivity
      */
     public void rotate(Vec2 movement, double sensitivity) {
-        dir = Vec.nrm(Vec.tn(dir, Matrix.mul(Matrix.rx(-sensitivity * movement.y), Matrix.ry(sensitivity * movement.x))));
-        target = Vec.add(pos, dir);
-        buildTransform();
+        rotate(movement.x, movement.y, sensitivity);
+    }
+
+    /**
+     * Rotate camera, first about the x-axis by -sensitivity * y, then about
+     * the y-axis by sensitivity * x.
+     *
+     * @param x horizontal mouse movement in screen pixels
+     * @param y vertical mouse movement in screen pixels
+     * @param sensitivity sensitivity
+     */
+    public void rotate(double x, double y, double sensitivity) {
+        double a = -sensitivity * y, b = sensitivity * x;
+        double ca = Math.cos(a), sa = Math.sin(a);
+        double cb = Math.cos(b), sb = Math.sin(b);
+        double ry = dy * ca - dz * sa;
+        double rz = dy * sa + dz * ca;
+        double rx = dx * cb + rz * sb;
+        rz = rz * cb - dx * sb;
+        double l = 1.0d / Math.sqrt(rx * rx + ry * ry + rz * rz);
+        dx = rx * l;
+        dy = ry * l;
+        dz = rz * l;
+        viewDirty = true;
+    }
+
+    /**
+     * Sets angle of field-of-view.
+     *
+     * @param fov angle of field-of-view in radians
+     */
+    public void setFov(double fov) {
+        this.fov = fov;
+        projDirty = true;
+    }
+
+    /**
+     * Sets aspect ratio.
+     *
+     * @param aspectRatio viewport's width/height
+     */
+    public void setAspectRatio(double aspectRatio) {
+        this.aspectRatio = aspectRatio;
+        projDirty = true;
+    }
+
+    /**
+     * Sets near and far z planes.
+     *
+     * @param zNear near z plane
+     * @param zFar far z plane
+     */
+    public void setClipPlanes(double zNear, double zFar) {
+        this.zNear = zNear;
+        this.zFar = zFar;
+        projDirty = true;
     }
 
     /**
@@ -84,6 +270,7 @@ public class Camera {
      * @return camera's position
      */
     public Vec getPos() {
+        validateVec();
         return pos;
     }
 
@@ -93,6 +280,7 @@ public class Camera {
      * @return camera's view matrix
      */
     public Matrix getView() {
+        validateMatrices();
         return view;
     }
 
@@ -102,6 +290,7 @@ public class Camera {
      * @return camera's projection matrix
      */
     public Matrix getProj() {
+        validateMatrices();
         return proj;
     }
 
@@ -111,6 +300,161 @@ public class Camera {
      * @return camera's view-projection matrix
      */
     public Matrix getMatrix() {
+        validateMatrices();
         return matrix;
     }
+
+    /**
+     * Copies the view matrix into an array in row-major order, to be
+     * multiplied with row vectors from the left.
+     *
+     * @param m destination array of length 16
+     * @return m
+     */
+    public double[] getView(double[] m) {
+        validate();
+        System.arraycopy(viewData, 0, m, 0, 16);
+        return m;
+    }
+
+    /**
+     * Copies the projection matrix into an array in row-major order, to be
+     * multiplied with row vectors from the left.
+     *
+     * @param m destination array of length 16
+     * @return m
+     */
+    public double[] getProj(double[] m) {
+        validate();
+        System.arraycopy(projData, 0, m, 0, 16);
+        return m;
+    }
+
+    /**
+     * Copies the view-projection matrix into an array in row-major order,
+     * to be multiplied with row vectors from the left.
+     *
+     * @param m destination array of length 16
+     * @return m
+     */
+    public double[] getMatrix(double[] m) {
+        validate();
+        System.arraycopy(matrixData, 0, m, 0, 16);
+        return m;
+    }
+
+    /**
+     * Returns view frustum, updated along with the view-projection matrix.
+     *
+     * @return camera's view frustum
+     */
+    public Frustum getFrustum() {
+        validate();
+        return frustum;
+    }
+
+    /**
+     * Checks if a bounding sphere is at least partly inside the view frustum.
+     *
+     * @param x center x
+     * @param y center y
+     * @param z center z
+     * @param r radius
+     * @return true if sphere may be visible
+     */
+    public boolean isVisible(double x, double y, double z, double r) {
+        return getFrustum().isVisible(x, y, z, r);
+    }
+
+    /**
+     * Checks if an axis-aligned box is at least partly inside the view
+     * frustum.
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param minZ min z
+     * @param maxX max x
+     * @param maxY max y
+     * @param maxZ max z
+     * @return true if box may be visible
+     */
+    public boolean isVisible(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        return getFrustum().isVisible(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix. In
+     * {@link #CLIP} space, x, y, z, w quadruplets are written. In
+     * {@link #NDC} and {@link #SCREEN} space, x, y, z triplets are
+     * written after perspective divide and, for screen space, mapping to a
+     * viewport with y pointing down.
+     *
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space CLIP, NDC or SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(float[] src, int srcOff, float[] dst, int dstOff, int n, int space, int width, int height) {
+        validate();
+        Mat4.transform(matrixData, src, srcOff, dst, dstOff, n, space, width, height);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix. See
+     * {@link #transform(float[], int, float[], int, int, int, int, int)}.
+     *
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space CLIP, NDC or SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int n, int space, int width, int height) {
+        validate();
+        Mat4.transform(matrixData, src, srcOff, dst, dstOff, n, space, width, height);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix, reading
+     * and writing from the buffers' current positions without moving them. See
+     * {@link #transform(float[], int, float[], int, int, int, int, int)}.
+     *
+     * @param src source positions
+     * @param dst destination buffer
+     * @param n number of positions
+     * @param space CLIP, NDC or SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(FloatBuffer src, FloatBuffer dst, int n, int space, int width, int height) {
+        validate();
+        Mat4.transform(matrixData, src, src.position(), dst, dst.position(), n, space, width, height);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix, split
+     * into ranges distributed over a task manager. See
+     * {@link #transform(float[], int, float[], int, int, int, int, int)}.
+     *
+     * @param tm task manager
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space CLIP, NDC or SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(TaskManager tm, float[] src, int srcOff, float[] dst, int dstOff, int n, int space, int width, int height) {
+        validate();
+        Mat4.transform(tm, matrixData, src, srcOff, dst, dstOff, n, space, width, height);
+    }
 }
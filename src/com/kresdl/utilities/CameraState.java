@@ -0,0 +1,250 @@
+package com.kresdl.utilities;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Immutable snapshot of a camera, published by {@link Camera#publish()}.
+ * Snapshots can be shared freely between threads.
+ */
+public final class CameraState {
+
+    private final double px, py, pz, dx, dy, dz;
+    private final double aspectRatio, zNear, zFar, fov;
+    private final boolean glSpace;
+    private final double[] view, proj, matrix;
+    private final Frustum frustum;
+
+    CameraState(double px, double py, double pz, double dx, double dy, double dz,
+            double aspectRatio, double zNear, double zFar, double fov, boolean glSpace,
+            double[] view, double[] proj, double[] matrix, Frustum frustum) {
+        this.px = px;
+        this.py = py;
+        this.pz = pz;
+        this.dx = dx;
+        this.dy = dy;
+        this.dz = dz;
+        this.aspectRatio = aspectRatio;
+        this.zNear = zNear;
+        this.zFar = zFar;
+        this.fov = fov;
+        this.glSpace = glSpace;
+        this.view = view.clone();
+        this.proj = proj.clone();
+        this.matrix = matrix.clone();
+        this.frustum = new Frustum(frustum);
+    }
+
+    /**
+     * Copies position into an array.
+     *
+     * @param p destination array of length 3
+     * @return p
+     */
+    public double[] getPos(double[] p) {
+        p[0] = px;
+        p[1] = py;
+        p[2] = pz;
+        return p;
+    }
+
+    /**
+     * Copies normalized view direction into an array.
+     *
+     * @param d destination array of length 3
+     * @return d
+     */
+    public double[] getDir(double[] d) {
+        d[0] = dx;
+        d[1] = dy;
+        d[2] = dz;
+        return d;
+    }
+
+    /**
+     * Returns aspect ratio.
+     *
+     * @return viewport's width/height
+     */
+    public double getAspectRatio() {
+        return aspectRatio;
+    }
+
+    /**
+     * Returns near z plane.
+     *
+     * @return near z plane
+     */
+    public double getZNear() {
+        return zNear;
+    }
+
+    /**
+     * Returns far z plane.
+     *
+     * @return far z plane
+     */
+    public double getZFar() {
+        return zFar;
+    }
+
+    /**
+     * Returns angle of field-of-view.
+     *
+     * @return angle of field-of-view in radians
+     */
+    public double getFov() {
+        return fov;
+    }
+
+    /**
+     * Returns true if camera is adapted to OpenGL-space.
+     *
+     * @return true if in OpenGL-space
+     */
+    public boolean isGlSpace() {
+        return glSpace;
+    }
+
+    /**
+     * Copies the view matrix into an array in row-major order.
+     *
+     * @param m destination array of length 16
+     * @return m
+     */
+    public double[] getView(double[] m) {
+        System.arraycopy(view, 0, m, 0, 16);
+        return m;
+    }
+
+    /**
+     * Copies the projection matrix into an array in row-major order.
+     *
+     * @param m destination array of length 16
+     * @return m
+     */
+    public double[] getProj(double[] m) {
+        System.arraycopy(proj, 0, m, 0, 16);
+        return m;
+    }
+
+    /**
+     * Copies the view-projection matrix into an array in row-major order.
+     *
+     * @param m destination array of length 16
+     * @return m
+     */
+    public double[] getMatrix(double[] m) {
+        System.arraycopy(matrix, 0, m, 0, 16);
+        return m;
+    }
+
+    /**
+     * Returns view frustum.
+     *
+     * @return view frustum
+     */
+    public Frustum getFrustum() {
+        return frustum;
+    }
+
+    /**
+     * Checks if a bounding sphere is at least partly inside the view frustum.
+     *
+     * @param x center x
+     * @param y center y
+     * @param z center z
+     * @param r radius
+     * @return true if sphere may be visible
+     */
+    public boolean isVisible(double x, double y, double z, double r) {
+        return frustum.isVisible(x, y, z, r);
+    }
+
+    /**
+     * Checks if an axis-aligned box is at least partly inside the view
+     * frustum.
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param minZ min z
+     * @param maxX max x
+     * @param maxY max y
+     * @param maxZ max z
+     * @return true if box may be visible
+     */
+    public boolean isVisible(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        return frustum.isVisible(minX, minY, minZ, maxX, maxY, maxZ);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix. In
+     * {@link Camera#CLIP} space, x, y, z, w quadruplets are written. In
+     * {@link Camera#NDC} and {@link Camera#SCREEN} space, x, y, z triplets are
+     * written after perspective divide and, for screen space, mapping to a
+     * viewport with y pointing down.
+     *
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(float[] src, int srcOff, float[] dst, int dstOff, int n, int space, int width, int height) {
+        Mat4.transform(matrix, src, srcOff, dst, dstOff, n, space, width, height);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix. See
+     * {@link #transform(float[], int, float[], int, int, int, int, int)}.
+     *
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int n, int space, int width, int height) {
+        Mat4.transform(matrix, src, srcOff, dst, dstOff, n, space, width, height);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix, reading
+     * and writing from the buffers' current positions without moving them. See
+     * {@link #transform(float[], int, float[], int, int, int, int, int)}.
+     *
+     * @param src source positions
+     * @param dst destination buffer
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(FloatBuffer src, FloatBuffer dst, int n, int space, int width, int height) {
+        Mat4.transform(matrix, src, src.position(), dst, dst.position(), n, space, width, height);
+    }
+
+    /**
+     * Transforms x, y, z triplets through the view-projection matrix, split
+     * into ranges distributed over a task manager. See
+     * {@link #transform(float[], int, float[], int, int, int, int, int)}.
+     *
+     * @param tm task manager
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width, used in screen space
+     * @param height viewport height, used in screen space
+     */
+    public void transform(TaskManager tm, float[] src, int srcOff, float[] dst, int dstOff, int n, int space, int width, int height) {
+        Mat4.transform(tm, matrix, src, srcOff, dst, dstOff, n, space, width, height);
+    }
+}
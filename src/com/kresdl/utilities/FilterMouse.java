@@ -1,37 +1,72 @@
 package com.kresdl.utilities;
 
 import java.awt.Container;
-import java.awt.Point;
-import java.util.Arrays;
 
 import com.kresdl.geometry.Vec2;
 
 /**
- * Mouse with filter for smooth movement.
+ * Mouse with filter for smooth movement. The filter sees the delta of each
+ * event, stamped with the event time on the input source's clock, and the
+ * filtered deltas add up until the movement is read.
  */
 public class FilterMouse extends AbstractMouse {
 
-    private int q = 0;
-    private final int[] dx = new int[5],
-            dy = new int[5];
-    private Vec2 movement = new Vec2();
+    private final MotionFilter filter;
+    private final double[] out = new double[2];
+    private double mx, my;
 
     /**
-     * Constructs FilterMouse and registers it on given container.
+     * Constructs FilterMouse with a box filter over 5 samples and registers it
+     * on given container.
      *
      * @param c container
      */
     public FilterMouse(Container c) {
+        this(c, new MotionFilter.Box(5));
+    }
+
+    /**
+     * Constructs FilterMouse with given filter and registers it on given
+     * container.
+     *
+     * @param c container
+     * @param filter motion filter
+     */
+    public FilterMouse(Container c, MotionFilter filter) {
         super(c);
+        this.filter = filter;
+    }
+
+    /**
+     * Constructs FilterMouse with a box filter over 5 samples and registers it
+     * on given input source.
+     *
+     * @param s input source
+     */
+    public FilterMouse(InputSource s) {
+        this(s, new MotionFilter.Box(5));
+    }
+
+    /**
+     * Constructs FilterMouse with given filter and registers it on given
+     * input source.
+     *
+     * @param s input source
+     * @param filter motion filter
+     */
+    public FilterMouse(InputSource s, MotionFilter filter) {
+        super(s);
+        this.filter = filter;
     }
 
     @Override
-    synchronized boolean test(Point d) {
-        Vec2 t = avg(d);
-        if (t.x == 0 && t.y == 0) {
+    boolean test(int dx, int dy, int sx, int sy, long time) {
+        filter.filter(time, sx, sy, out);
+        if (out[0] == 0 && out[1] == 0) {
             return false;
         }
-        movement = t;
+        mx += out[0];
+        my += out[1];
         return true;
     }
 
@@ -41,19 +76,25 @@ public class FilterMouse extends AbstractMouse {
      *
      * @return mouse movement
      */
-    public synchronized Vec2 getMovement() {
-        old = current;
-        return movement;
+    public Vec2 getMovement() {
+        oldX = curX;
+        oldY = curY;
+        Vec2 v = new Vec2(mx, my);
+        mx = my = 0;
+        return v;
     }
 
-    private Vec2 avg(Point p) {
-        dx[q] = p.x;
-        dy[q++] = p.y;
-        q %= 5;
-        return new Vec2(avg(dx), avg(dy));
-    }
-
-    private double avg(int[] delta) {
-        return Arrays.stream(delta).average().getAsDouble();
+    /**
+     * Writes the mouse movement in double-precision since last call to this
+     * method into given array, without allocating.
+     *
+     * @param d receives horizontal and vertical movement at index 0 and 1
+     */
+    public void getMovement(double[] d) {
+        oldX = curX;
+        oldY = curY;
+        d[0] = mx;
+        d[1] = my;
+        mx = my = 0;
     }
 }
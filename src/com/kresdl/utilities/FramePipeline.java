@@ -0,0 +1,276 @@
+package com.kresdl.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Frame pipeline. Every frame passes through a fixed list of stages, such as
+ * input sampling, camera update, culling, rasterization and presentation.
+ * A stage of frame N+1 may run while later stages of frame N are still busy,
+ * but each stage handles frames one at a time and in order.
+ * <p>
+ * Every frame gets its own output buffer from a ring with one buffer per frame
+ * in flight, so two frames in flight give double buffering and three give
+ * triple buffering. Frames leave the pipeline in submission order, even when a
+ * stage fails. A completed frame stays in flight until its buffer is handed
+ * back through {@link #release(Object)}, so a buffer is never reused while
+ * the caller still reads it. A failed frame leaves the pipeline at once.
+ * <p>
+ * Stages run on the task manager at interactive priority unless given an
+ * executor of their own, for example {@code EventQueue::invokeLater} for a
+ * presentation stage that has to run on the event dispatch thread.
+ *
+ * @param <F> frame buffer type
+ */
+public class FramePipeline<F> {
+
+    private final Executor executor;
+    private final Object[] buffers;
+    private final Semaphore permits;
+    private final boolean[] held;
+    private final List<Stage<F>> stages = new ArrayList<>();
+    private final LongAdder completed = new LongAdder(), failed = new LongAdder();
+    private CompletableFuture<?>[] last;
+    private CompletableFuture<?> tail = CompletableFuture.completedFuture(null);
+    private long frames;
+
+    /**
+     * Constructs frame pipeline.
+     *
+     * @param tm task manager
+     * @param framesInFlight maximum number of frames in flight
+     * @param buffer supplier of frame buffers, called framesInFlight times
+     */
+    public FramePipeline(TaskManager tm, int framesInFlight, Supplier<? extends F> buffer) {
+        if (framesInFlight < 1) {
+            throw new IllegalArgumentException("Frames in flight < 1");
+        }
+        executor = r -> tm.execute(r, TaskManager.Priority.INTERACTIVE);
+        buffers = new Object[framesInFlight];
+        for (int i = 0; i < framesInFlight; i++) {
+            buffers[i] = buffer.get();
+        }
+        permits = new Semaphore(framesInFlight);
+        held = new boolean[framesInFlight];
+    }
+
+    /**
+     * Appends a stage running on the task manager. Stages cannot be added
+     * once the first frame has been submitted.
+     *
+     * @param name stage name
+     * @param stage stage body
+     * @return this pipeline
+     */
+    public FramePipeline<F> addStage(String name, Consumer<? super F> stage) {
+        return addStage(name, stage, executor);
+    }
+
+    /**
+     * Appends a stage running on given executor. Stages cannot be added once
+     * the first frame has been submitted.
+     *
+     * @param name stage name
+     * @param stage stage body
+     * @param executor stage executor
+     * @return this pipeline
+     */
+    public synchronized FramePipeline<F> addStage(String name, Consumer<? super F> stage, Executor executor) {
+        if (last != null) {
+            throw new IllegalStateException("Pipeline started");
+        }
+        stages.add(new Stage<>(name, stage, executor));
+        return this;
+    }
+
+    /**
+     * Submits a frame, blocking while the maximum number of frames are in
+     * flight. The returned future resolves to the frame buffer once the last
+     * stage has completed, and the buffer must then be released. If a stage
+     * failed, the future completes exceptionally and the remaining stages of
+     * that frame are skipped.
+     *
+     * @return frame future
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public CompletableFuture<F> submit() throws InterruptedException {
+        permits.acquire();
+        return start();
+    }
+
+    /**
+     * Submits a frame unless the maximum number of frames are in flight.
+     *
+     * @return frame future, or null if the pipeline is full
+     */
+    public CompletableFuture<F> trySubmit() {
+        if (!permits.tryAcquire()) {
+            return null;
+        }
+        return start();
+    }
+
+    /**
+     * Hands back the buffer of a completed frame, letting the frame leave the
+     * pipeline so that its buffer can be reused.
+     *
+     * @param buf frame buffer resolved by a frame future
+     * @throws IllegalStateException if the buffer is not held by a completed
+     * frame
+     */
+    public void release(F buf) {
+        synchronized (held) {
+            int i = 0;
+            while (i < buffers.length && !(buffers[i] == buf && held[i])) {
+                i++;
+            }
+            if (i == buffers.length) {
+                throw new IllegalStateException("Buffer not held");
+            }
+            held[i] = false;
+        }
+        permits.release();
+    }
+
+    /**
+     * Blocks until all frames in flight have left the pipeline.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+        permits.acquire(buffers.length);
+        permits.release(buffers.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized CompletableFuture<F> start() {
+        if (stages.isEmpty()) {
+            permits.release();
+            throw new IllegalStateException("No stages");
+        }
+        if (last == null) {
+            last = new CompletableFuture<?>[stages.size()];
+            for (int i = 0; i < last.length; i++) {
+                last[i] = CompletableFuture.completedFuture(null);
+            }
+        }
+        int slot = (int) (frames++ % buffers.length);
+        F buf = (F) buffers[slot];
+        CompletableFuture<?> f = CompletableFuture.completedFuture(null);
+        for (int i = 0; i < last.length; i++) {
+            Stage<F> s = stages.get(i);
+            CompletableFuture<?> prev = last[i];
+            f = f.runAfterBothAsync(prev, () -> s.run(buf), s.executor);
+            last[i] = CompletableFuture.allOf(prev, f).handle((v, e) -> null);
+        }
+        CompletableFuture<F> r = tail.thenCombine(f.handle((v, e) -> e), (v, e) -> {
+            if (e != null) {
+                failed.increment();
+                permits.release();
+                throw e instanceof RuntimeException ? (RuntimeException) e : new CompletionException(e);
+            }
+            synchronized (held) {
+                held[slot] = true;
+            }
+            completed.increment();
+            return buf;
+        });
+        tail = r.handle((v, e) -> null);
+        return r;
+    }
+
+    /**
+     * Returns number of stages.
+     *
+     * @return number of stages
+     */
+    public synchronized int getStageCount() {
+        return stages.size();
+    }
+
+    /**
+     * Returns name of a stage.
+     *
+     * @param stage stage index
+     * @return stage name
+     */
+    public synchronized String getStageName(int stage) {
+        return stages.get(stage).name;
+    }
+
+    /**
+     * Returns total time spent in a stage, in nanoseconds.
+     *
+     * @param stage stage index
+     * @return stage time
+     */
+    public synchronized long getStageTime(int stage) {
+        return stages.get(stage).time.sum();
+    }
+
+    /**
+     * Returns maximum number of frames in flight.
+     *
+     * @return maximum number of frames in flight
+     */
+    public int getFramesInFlight() {
+        return buffers.length;
+    }
+
+    /**
+     * Returns number of frames currently in flight.
+     *
+     * @return number of frames in flight
+     */
+    public int getInFlight() {
+        return buffers.length - permits.availablePermits();
+    }
+
+    /**
+     * Returns number of frames that passed all stages.
+     *
+     * @return number of completed frames
+     */
+    public long getFrameCount() {
+        return completed.sum();
+    }
+
+    /**
+     * Returns number of frames in which a stage failed.
+     *
+     * @return number of failed frames
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    private static class Stage<F> {
+
+        final String name;
+        final Consumer<? super F> body;
+        final Executor executor;
+        final LongAdder time = new LongAdder();
+
+        Stage(String name, Consumer<? super F> body, Executor executor) {
+            this.name = name;
+            this.body = body;
+            this.executor = executor;
+        }
+
+        void run(F buf) {
+            long t = System.nanoTime();
+            try {
+                body.accept(buf);
+            } finally {
+                time.add(System.nanoTime() - t);
+            }
+        }
+    }
+}
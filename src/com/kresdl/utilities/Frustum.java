@@ -0,0 +1,215 @@
+package com.kresdl.utilities;
+
+import java.util.BitSet;
+
+/**
+ * View frustum as six planes, extracted from a view-projection matrix. Used to
+ * reject bounding spheres and axis-aligned boxes before projection.
+ */
+public class Frustum {
+
+    /**
+     * Classification results.
+     */
+    public static final int OUTSIDE = 0, INSIDE = 1, INTERSECTING = 2;
+
+    // Planes a, b, c, d with normals pointing inwards: left, right, bottom,
+    // top, near, far
+    private final double[] p = new double[24];
+
+    /**
+     * Constructs an empty frustum, rejecting nothing.
+     */
+    public Frustum() {
+    }
+
+    /**
+     * Constructs a frustum from another frustum.
+     *
+     * @param f frustum to copy
+     */
+    public Frustum(Frustum f) {
+        System.arraycopy(f.p, 0, p, 0, 24);
+    }
+
+    /**
+     * Constructs a frustum from a view-projection matrix.
+     *
+     * @param m row-major matrix, as returned by
+     * {@link Camera#getMatrix(double[])}
+     * @param glSpace true if depth is mapped to range -1-1, false if 0-1
+     */
+    public Frustum(double[] m, boolean glSpace) {
+        set(m, glSpace);
+    }
+
+    void set(double[] m, boolean glSpace) {
+        for (int i = 0; i < 3; i++) {
+            plane(i * 8, m, i, 1.0d);
+            plane(i * 8 + 4, m, i, -1.0d);
+        }
+        if (!glSpace) {
+            // Near plane is z >= 0 rather than z >= -w
+            for (int j = 0; j < 4; j++) {
+                p[16 + j] = m[j * 4 + 2];
+            }
+            normalize(16);
+        }
+    }
+
+    private void plane(int o, double[] m, int column, double sign) {
+        for (int j = 0; j < 4; j++) {
+            p[o + j] = m[j * 4 + 3] + sign * m[j * 4 + column];
+        }
+        normalize(o);
+    }
+
+    private void normalize(int o) {
+        double l = Math.sqrt(p[o] * p[o] + p[o + 1] * p[o + 1] + p[o + 2] * p[o + 2]);
+        if (l > 0.0d) {
+            for (int j = 0; j < 4; j++) {
+                p[o + j] /= l;
+            }
+        }
+    }
+
+    /**
+     * Classifies a bounding sphere.
+     *
+     * @param x center x
+     * @param y center y
+     * @param z center z
+     * @param r radius
+     * @return OUTSIDE, INSIDE or INTERSECTING
+     */
+    public int classifySphere(double x, double y, double z, double r) {
+        int result = INSIDE;
+        for (int o = 0; o < 24; o += 4) {
+            double d = p[o] * x + p[o + 1] * y + p[o + 2] * z + p[o + 3];
+            if (d < -r) {
+                return OUTSIDE;
+            } else if (d < r) {
+                result = INTERSECTING;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if a bounding sphere is at least partly inside.
+     *
+     * @param x center x
+     * @param y center y
+     * @param z center z
+     * @param r radius
+     * @return true if sphere may be visible
+     */
+    public boolean isVisible(double x, double y, double z, double r) {
+        for (int o = 0; o < 24; o += 4) {
+            if (p[o] * x + p[o + 1] * y + p[o + 2] * z + p[o + 3] < -r) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Classifies an axis-aligned box.
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param minZ min z
+     * @param maxX max x
+     * @param maxY max y
+     * @param maxZ max z
+     * @return OUTSIDE, INSIDE or INTERSECTING
+     */
+    public int classifyBox(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        int result = INSIDE;
+        for (int o = 0; o < 24; o += 4) {
+            double a = p[o], b = p[o + 1], c = p[o + 2], d = p[o + 3];
+            // Corner farthest along the plane normal, and the one opposite
+            double far = a * (a > 0 ? maxX : minX) + b * (b > 0 ? maxY : minY) + c * (c > 0 ? maxZ : minZ) + d;
+            if (far < 0.0d) {
+                return OUTSIDE;
+            }
+            double near = a * (a > 0 ? minX : maxX) + b * (b > 0 ? minY : maxY) + c * (c > 0 ? minZ : maxZ) + d;
+            if (near < 0.0d) {
+                result = INTERSECTING;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Checks if an axis-aligned box is at least partly inside.
+     *
+     * @param minX min x
+     * @param minY min y
+     * @param minZ min z
+     * @param maxX max x
+     * @param maxY max y
+     * @param maxZ max z
+     * @return true if box may be visible
+     */
+    public boolean isVisible(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        for (int o = 0; o < 24; o += 4) {
+            double a = p[o], b = p[o + 1], c = p[o + 2];
+            if (a * (a > 0 ? maxX : minX) + b * (b > 0 ? maxY : minY) + c * (c > 0 ? maxZ : minZ) + p[o + 3] < 0.0d) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Classifies bounding spheres stored as x, y, z, r quadruplets. For each
+     * sphere i, bit i of visible is set unless the sphere is outside, and bit
+     * i of intersecting is set if it crosses a plane.
+     *
+     * @param spheres sphere array
+     * @param offset offset of first sphere
+     * @param n number of spheres
+     * @param visible destination for visible spheres
+     * @param intersecting destination for intersecting spheres, or null
+     * @return number of visible spheres
+     */
+    public int classifySpheres(double[] spheres, int offset, int n, BitSet visible, BitSet intersecting) {
+        int count = 0;
+        for (int i = 0; i < n; i++, offset += 4) {
+            int c = classifySphere(spheres[offset], spheres[offset + 1], spheres[offset + 2], spheres[offset + 3]);
+            count += mark(i, c, visible, intersecting);
+        }
+        return count;
+    }
+
+    /**
+     * Classifies axis-aligned boxes stored as minX, minY, minZ, maxX, maxY,
+     * maxZ sextuplets. For each box i, bit i of visible is set unless the box
+     * is outside, and bit i of intersecting is set if it crosses a plane.
+     *
+     * @param boxes box array
+     * @param offset offset of first box
+     * @param n number of boxes
+     * @param visible destination for visible boxes
+     * @param intersecting destination for intersecting boxes, or null
+     * @return number of visible boxes
+     */
+    public int classifyBoxes(double[] boxes, int offset, int n, BitSet visible, BitSet intersecting) {
+        int count = 0;
+        for (int i = 0; i < n; i++, offset += 6) {
+            int c = classifyBox(boxes[offset], boxes[offset + 1], boxes[offset + 2],
+                    boxes[offset + 3], boxes[offset + 4], boxes[offset + 5]);
+            count += mark(i, c, visible, intersecting);
+        }
+        return count;
+    }
+
+    private static int mark(int i, int c, BitSet visible, BitSet intersecting) {
+        visible.set(i, c != OUTSIDE);
+        if (intersecting != null) {
+            intersecting.set(i, c == INTERSECTING);
+        }
+        return c != OUTSIDE ? 1 : 0;
+    }
+}
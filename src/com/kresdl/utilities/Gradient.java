@@ -1,16 +1,43 @@
 package com.kresdl.utilities;
 
 import java.awt.Color;
+import java.nio.ByteBuffer;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
 import java.util.TreeMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 /**
  * Color gradient
+ * <p>
+ * Key, value and entry views as well as sub maps write through as with any
+ * TreeMap, and every change made through them invalidates the baked table
+ * used by {@link #sampleARGB(double)}, just like the methods of the gradient
+ * itself.
  */
 public class Gradient extends TreeMap<Double, Color> {
 
     public static final long serialVersionUID = 1L;
 
+    /**
+     * Default number of samples used by {@link #sampleARGB(double)}.
+     */
+    public static final int DEFAULT_SAMPLES = 1024;
+
+    private transient volatile int version;
+    private transient volatile BakedGradient baked;
+
     /**
      * Constructs a black to white gradient.
      */
@@ -109,6 +136,264 @@ public class Gradient extends TreeMap<Double, Color> {
         return Misc.colorLerp(a.getValue(), b.getValue(), p);
     }
 
+    /**
+     * Returns color in integer format 0xAARRGGBB, looked up in a baked table
+     * of {@link #DEFAULT_SAMPLES} samples. Performs no allocation unless the
+     * gradient has changed since the table was last baked.
+     *
+     * @param g position
+     * @return 0xAARRGGBB
+     */
+    public int sampleARGB(double g) {
+        return bake(DEFAULT_SAMPLES).sampleARGB(g);
+    }
+
+    /**
+     * Returns a baked lookup table of this gradient. The table is cached and
+     * rebuilt when the gradient has been modified, when {@link #invalidate()}
+     * has been called or when a different number of samples is requested.
+     *
+     * @param samples number of samples, at least 2
+     * @return baked gradient
+     */
+    public BakedGradient bake(int samples) {
+        BakedGradient b = baked;
+        int v = version;
+        if (b == null || b.version != v || b.size() != samples) {
+            b = new BakedGradient(this, samples, v);
+            baked = b;
+        }
+        return b;
+    }
+
+    /**
+     * Colorizes values into packed 0xAARRGGBB pixels using the table returned
+     * by {@link #bake(int)} with {@link #DEFAULT_SAMPLES} samples.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination pixels
+     * @param dstOff offset into destination array
+     * @param len number of values
+     */
+    public void colorize(double[] src, int srcOff, int[] dst, int dstOff, int len) {
+        bake(DEFAULT_SAMPLES).colorize(src, srcOff, dst, dstOff, len);
+    }
+
+    /**
+     * Colorizes values into packed 0xAARRGGBB pixels using the table returned
+     * by {@link #bake(int)} with {@link #DEFAULT_SAMPLES} samples.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination pixels
+     * @param dstOff offset into destination array
+     * @param len number of values
+     */
+    public void colorize(float[] src, int srcOff, int[] dst, int dstOff, int len) {
+        bake(DEFAULT_SAMPLES).colorize(src, srcOff, dst, dstOff, len);
+    }
+
+    /**
+     * Colorizes values into 4-byte pixels of a byte buffer using the table
+     * returned by {@link #bake(int)} with {@link #DEFAULT_SAMPLES} samples.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination buffer
+     * @param dstOff byte offset into destination buffer
+     * @param len number of values
+     * @param layout byte layout of destination pixels
+     */
+    public void colorize(double[] src, int srcOff, ByteBuffer dst, int dstOff, int len, BakedGradient.Layout layout) {
+        bake(DEFAULT_SAMPLES).colorize(src, srcOff, dst, dstOff, len, layout);
+    }
+
+    /**
+     * Colorizes values into 4-byte pixels of a byte buffer using the table
+     * returned by {@link #bake(int)} with {@link #DEFAULT_SAMPLES} samples.
+     *
+     * @param src source values
+     * @param srcOff offset into source array
+     * @param dst destination buffer
+     * @param dstOff byte offset into destination buffer
+     * @param len number of values
+     * @param layout byte layout of destination pixels
+     */
+    public void colorize(float[] src, int srcOff, ByteBuffer dst, int dstOff, int len, BakedGradient.Layout layout) {
+        bake(DEFAULT_SAMPLES).colorize(src, srcOff, dst, dstOff, len, layout);
+    }
+
+    /**
+     * Discards the baked table. Changes made through the gradient's own
+     * methods do so automatically.
+     */
+    public void invalidate() {
+        version++;
+    }
+
+    @Override
+    public Color put(Double key, Color value) {
+        Color c = super.put(key, value);
+        version++;
+        return c;
+    }
+
+    @Override
+    public void putAll(Map<? extends Double, ? extends Color> map) {
+        super.putAll(map);
+        version++;
+    }
+
+    @Override
+    public Color putIfAbsent(Double key, Color value) {
+        Color c = super.putIfAbsent(key, value);
+        version++;
+        return c;
+    }
+
+    @Override
+    public Color remove(Object key) {
+        Color c = super.remove(key);
+        version++;
+        return c;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        boolean r = super.remove(key, value);
+        version++;
+        return r;
+    }
+
+    @Override
+    public Color replace(Double key, Color value) {
+        Color c = super.replace(key, value);
+        version++;
+        return c;
+    }
+
+    @Override
+    public boolean replace(Double key, Color oldValue, Color newValue) {
+        boolean r = super.replace(key, oldValue, newValue);
+        version++;
+        return r;
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super Double, ? super Color, ? extends Color> f) {
+        super.replaceAll(f);
+        version++;
+    }
+
+    @Override
+    public Color merge(Double key, Color value, BiFunction<? super Color, ? super Color, ? extends Color> f) {
+        Color c = super.merge(key, value, f);
+        version++;
+        return c;
+    }
+
+    @Override
+    public Color compute(Double key, BiFunction<? super Double, ? super Color, ? extends Color> f) {
+        Color c = super.compute(key, f);
+        version++;
+        return c;
+    }
+
+    @Override
+    public Color computeIfAbsent(Double key, Function<? super Double, ? extends Color> f) {
+        Color c = super.computeIfAbsent(key, f);
+        version++;
+        return c;
+    }
+
+    @Override
+    public Color computeIfPresent(Double key, BiFunction<? super Double, ? super Color, ? extends Color> f) {
+        Color c = super.computeIfPresent(key, f);
+        version++;
+        return c;
+    }
+
+    @Override
+    public Map.Entry<Double, Color> pollFirstEntry() {
+        Map.Entry<Double, Color> e = super.pollFirstEntry();
+        version++;
+        return e;
+    }
+
+    @Override
+    public Map.Entry<Double, Color> pollLastEntry() {
+        Map.Entry<Double, Color> e = super.pollLastEntry();
+        version++;
+        return e;
+    }
+
+    @Override
+    public void clear() {
+        super.clear();
+        version++;
+    }
+
+    @Override
+    public Set<Map.Entry<Double, Color>> entrySet() {
+        return new Entries(super.entrySet());
+    }
+
+    @Override
+    public Set<Double> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<Double> navigableKeySet() {
+        return new Keys(super.navigableKeySet());
+    }
+
+    @Override
+    public NavigableSet<Double> descendingKeySet() {
+        return new Keys(super.descendingKeySet());
+    }
+
+    @Override
+    public Collection<Color> values() {
+        return new Values(super.values());
+    }
+
+    @Override
+    public NavigableMap<Double, Color> descendingMap() {
+        return new View(super.descendingMap());
+    }
+
+    @Override
+    public NavigableMap<Double, Color> subMap(Double from, boolean fromInclusive, Double to, boolean toInclusive) {
+        return new View(super.subMap(from, fromInclusive, to, toInclusive));
+    }
+
+    @Override
+    public SortedMap<Double, Color> subMap(Double from, Double to) {
+        return subMap(from, true, to, false);
+    }
+
+    @Override
+    public NavigableMap<Double, Color> headMap(Double to, boolean inclusive) {
+        return new View(super.headMap(to, inclusive));
+    }
+
+    @Override
+    public SortedMap<Double, Color> headMap(Double to) {
+        return headMap(to, false);
+    }
+
+    @Override
+    public NavigableMap<Double, Color> tailMap(Double from, boolean inclusive) {
+        return new View(super.tailMap(from, inclusive));
+    }
+
+    @Override
+    public SortedMap<Double, Color> tailMap(Double from) {
+        return tailMap(from, true);
+    }
+
     /**
      * Returns closest entry.
      *
@@ -165,4 +450,460 @@ public class Gradient extends TreeMap<Double, Color> {
             this.color = color;
         }
     }
+
+    /**
+     * Iterator over a view, invalidating on removal.
+     */
+    private class Iter<T> implements Iterator<T> {
+
+        private final Iterator<T> it;
+
+        Iter(Iterator<T> it) {
+            this.it = it;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return it.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return it.next();
+        }
+
+        @Override
+        public void remove() {
+            it.remove();
+            version++;
+        }
+    }
+
+    /**
+     * Entry of a view, invalidating on setValue.
+     */
+    private class ViewEntry implements Map.Entry<Double, Color> {
+
+        private final Map.Entry<Double, Color> e;
+
+        ViewEntry(Map.Entry<Double, Color> e) {
+            this.e = e;
+        }
+
+        @Override
+        public Double getKey() {
+            return e.getKey();
+        }
+
+        @Override
+        public Color getValue() {
+            return e.getValue();
+        }
+
+        @Override
+        public Color setValue(Color value) {
+            Color c = e.setValue(value);
+            version++;
+            return c;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return e.equals(o);
+        }
+
+        @Override
+        public int hashCode() {
+            return e.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return e.toString();
+        }
+    }
+
+    private class Entries extends AbstractSet<Map.Entry<Double, Color>> {
+
+        private final Set<Map.Entry<Double, Color>> s;
+
+        Entries(Set<Map.Entry<Double, Color>> s) {
+            this.s = s;
+        }
+
+        @Override
+        public Iterator<Map.Entry<Double, Color>> iterator() {
+            return new Iter<Map.Entry<Double, Color>>(s.iterator()) {
+                @Override
+                public Map.Entry<Double, Color> next() {
+                    return new ViewEntry(super.next());
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return s.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return s.contains(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            boolean r = s.remove(o);
+            version++;
+            return r;
+        }
+
+        @Override
+        public void clear() {
+            s.clear();
+            version++;
+        }
+    }
+
+    private class Values extends AbstractCollection<Color> {
+
+        private final Collection<Color> c;
+
+        Values(Collection<Color> c) {
+            this.c = c;
+        }
+
+        @Override
+        public Iterator<Color> iterator() {
+            return new Iter<>(c.iterator());
+        }
+
+        @Override
+        public int size() {
+            return c.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return c.contains(o);
+        }
+
+        @Override
+        public void clear() {
+            c.clear();
+            version++;
+        }
+    }
+
+    private class Keys extends AbstractSet<Double> implements NavigableSet<Double> {
+
+        private final NavigableSet<Double> s;
+
+        Keys(NavigableSet<Double> s) {
+            this.s = s;
+        }
+
+        @Override
+        public Iterator<Double> iterator() {
+            return new Iter<>(s.iterator());
+        }
+
+        @Override
+        public Iterator<Double> descendingIterator() {
+            return new Iter<>(s.descendingIterator());
+        }
+
+        @Override
+        public int size() {
+            return s.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return s.contains(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            boolean r = s.remove(o);
+            version++;
+            return r;
+        }
+
+        @Override
+        public void clear() {
+            s.clear();
+            version++;
+        }
+
+        @Override
+        public Comparator<? super Double> comparator() {
+            return s.comparator();
+        }
+
+        @Override
+        public Double first() {
+            return s.first();
+        }
+
+        @Override
+        public Double last() {
+            return s.last();
+        }
+
+        @Override
+        public Double lower(Double e) {
+            return s.lower(e);
+        }
+
+        @Override
+        public Double floor(Double e) {
+            return s.floor(e);
+        }
+
+        @Override
+        public Double ceiling(Double e) {
+            return s.ceiling(e);
+        }
+
+        @Override
+        public Double higher(Double e) {
+            return s.higher(e);
+        }
+
+        @Override
+        public Double pollFirst() {
+            Double k = s.pollFirst();
+            version++;
+            return k;
+        }
+
+        @Override
+        public Double pollLast() {
+            Double k = s.pollLast();
+            version++;
+            return k;
+        }
+
+        @Override
+        public NavigableSet<Double> descendingSet() {
+            return new Keys(s.descendingSet());
+        }
+
+        @Override
+        public NavigableSet<Double> subSet(Double from, boolean fromInclusive, Double to, boolean toInclusive) {
+            return new Keys(s.subSet(from, fromInclusive, to, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<Double> headSet(Double to, boolean inclusive) {
+            return new Keys(s.headSet(to, inclusive));
+        }
+
+        @Override
+        public NavigableSet<Double> tailSet(Double from, boolean inclusive) {
+            return new Keys(s.tailSet(from, inclusive));
+        }
+
+        @Override
+        public SortedSet<Double> subSet(Double from, Double to) {
+            return subSet(from, true, to, false);
+        }
+
+        @Override
+        public SortedSet<Double> headSet(Double to) {
+            return headSet(to, false);
+        }
+
+        @Override
+        public SortedSet<Double> tailSet(Double from) {
+            return tailSet(from, true);
+        }
+    }
+
+    /**
+     * Sub map or descending view of the gradient.
+     */
+    private class View extends AbstractMap<Double, Color> implements NavigableMap<Double, Color> {
+
+        private final NavigableMap<Double, Color> m;
+
+        View(NavigableMap<Double, Color> m) {
+            this.m = m;
+        }
+
+        @Override
+        public Set<Map.Entry<Double, Color>> entrySet() {
+            return new Entries(m.entrySet());
+        }
+
+        @Override
+        public Set<Double> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<Double> navigableKeySet() {
+            return new Keys(m.navigableKeySet());
+        }
+
+        @Override
+        public NavigableSet<Double> descendingKeySet() {
+            return new Keys(m.descendingKeySet());
+        }
+
+        @Override
+        public Collection<Color> values() {
+            return new Values(m.values());
+        }
+
+        @Override
+        public int size() {
+            return m.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return m.containsKey(key);
+        }
+
+        @Override
+        public Color get(Object key) {
+            return m.get(key);
+        }
+
+        @Override
+        public Color put(Double key, Color value) {
+            Color c = m.put(key, value);
+            version++;
+            return c;
+        }
+
+        @Override
+        public Color remove(Object key) {
+            Color c = m.remove(key);
+            version++;
+            return c;
+        }
+
+        @Override
+        public void clear() {
+            m.clear();
+            version++;
+        }
+
+        @Override
+        public Comparator<? super Double> comparator() {
+            return m.comparator();
+        }
+
+        @Override
+        public Double firstKey() {
+            return m.firstKey();
+        }
+
+        @Override
+        public Double lastKey() {
+            return m.lastKey();
+        }
+
+        @Override
+        public Map.Entry<Double, Color> lowerEntry(Double key) {
+            return m.lowerEntry(key);
+        }
+
+        @Override
+        public Double lowerKey(Double key) {
+            return m.lowerKey(key);
+        }
+
+        @Override
+        public Map.Entry<Double, Color> floorEntry(Double key) {
+            return m.floorEntry(key);
+        }
+
+        @Override
+        public Double floorKey(Double key) {
+            return m.floorKey(key);
+        }
+
+        @Override
+        public Map.Entry<Double, Color> ceilingEntry(Double key) {
+            return m.ceilingEntry(key);
+        }
+
+        @Override
+        public Double ceilingKey(Double key) {
+            return m.ceilingKey(key);
+        }
+
+        @Override
+        public Map.Entry<Double, Color> higherEntry(Double key) {
+            return m.higherEntry(key);
+        }
+
+        @Override
+        public Double higherKey(Double key) {
+            return m.higherKey(key);
+        }
+
+        @Override
+        public Map.Entry<Double, Color> firstEntry() {
+            return m.firstEntry();
+        }
+
+        @Override
+        public Map.Entry<Double, Color> lastEntry() {
+            return m.lastEntry();
+        }
+
+        @Override
+        public Map.Entry<Double, Color> pollFirstEntry() {
+            Map.Entry<Double, Color> e = m.pollFirstEntry();
+            version++;
+            return e;
+        }
+
+        @Override
+        public Map.Entry<Double, Color> pollLastEntry() {
+            Map.Entry<Double, Color> e = m.pollLastEntry();
+            version++;
+            return e;
+        }
+
+        @Override
+        public NavigableMap<Double, Color> descendingMap() {
+            return new View(m.descendingMap());
+        }
+
+        @Override
+        public NavigableMap<Double, Color> subMap(Double from, boolean fromInclusive, Double to, boolean toInclusive) {
+            return new View(m.subMap(from, fromInclusive, to, toInclusive));
+        }
+
+        @Override
+        public NavigableMap<Double, Color> headMap(Double to, boolean inclusive) {
+            return new View(m.headMap(to, inclusive));
+        }
+
+        @Override
+        public NavigableMap<Double, Color> tailMap(Double from, boolean inclusive) {
+            return new View(m.tailMap(from, inclusive));
+        }
+
+        @Override
+        public SortedMap<Double, Color> subMap(Double from, Double to) {
+            return subMap(from, true, to, false);
+        }
+
+        @Override
+        public SortedMap<Double, Color> headMap(Double to) {
+            return headMap(to, false);
+        }
+
+        @Override
+        public SortedMap<Double, Color> tailMap(Double from) {
+            return tailMap(from, true);
+        }
+    }
 }
@@ -0,0 +1,259 @@
+package com.kresdl.utilities;
+
+import java.awt.event.MouseEvent;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Append-only binary log of mouse events in a memory-mapped file. Every
+ * record holds a time stamp in nanoseconds, the event id, component and
+ * screen coordinates, extended modifiers, button and click count in 36
+ * bytes. The file grows in doubling steps while recording and keeps its size
+ * on close, since a mapped file cannot be truncated on every platform; the
+ * record count in the header bounds the content.
+ */
+public class InputLog implements Closeable {
+
+    private static final int MAGIC = 0x4b4d494c, VERSION = 1;
+    private static final int HEADER = 16, RECORD = 36;
+
+    private final FileChannel ch;
+    private final boolean writable;
+    private MappedByteBuffer buf;
+    private int count;
+
+    private InputLog(FileChannel ch, boolean writable) {
+        this.ch = ch;
+        this.writable = writable;
+    }
+
+    /**
+     * Creates a log for recording, replacing any existing file.
+     *
+     * @param path file path
+     * @return log
+     * @throws IOException if the file could not be created
+     */
+    public static InputLog create(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        InputLog log = new InputLog(ch, true);
+        log.buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + 1024 * RECORD);
+        log.buf.putInt(0, MAGIC);
+        log.buf.putInt(4, VERSION);
+        log.buf.putLong(8, 0);
+        return log;
+    }
+
+    /**
+     * Opens a recorded log for reading.
+     *
+     * @param path file path
+     * @return log
+     * @throws IOException if the file could not be read or is not a log
+     */
+    public static InputLog open(Path path) throws IOException {
+        FileChannel ch = FileChannel.open(path, StandardOpenOption.READ);
+        InputLog log = new InputLog(ch, false);
+        try {
+            long size = ch.size();
+            if (size < HEADER) {
+                throw new IOException("Not an input log");
+            }
+            log.buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            long n = log.buf.getLong(8);
+            if (log.buf.getInt(0) != MAGIC || log.buf.getInt(4) != VERSION || n < 0 || HEADER + n * RECORD > size) {
+                throw new IOException("Not an input log");
+            }
+            log.count = (int) n;
+        } catch (IOException e) {
+            ch.close();
+            throw e;
+        }
+        return log;
+    }
+
+    /**
+     * Appends a mouse event.
+     *
+     * @param time time stamp in nanoseconds
+     * @param e event
+     */
+    public void append(long time, MouseEvent e) {
+        append(time, e.getID(), e.getX(), e.getY(), e.getXOnScreen(), e.getYOnScreen(),
+                e.getModifiersEx(), e.getButton(), e.getClickCount());
+    }
+
+    /**
+     * Appends a mouse event.
+     *
+     * @param time time stamp in nanoseconds
+     * @param id event id, such as MouseEvent.MOUSE_PRESSED
+     * @param x x relative to the component
+     * @param y y relative to the component
+     * @param xOnScreen x on screen
+     * @param yOnScreen y on screen
+     * @param modifiersEx extended modifiers
+     * @param button button
+     * @param clickCount click count
+     */
+    public synchronized void append(long time, int id, int x, int y, int xOnScreen, int yOnScreen,
+            int modifiersEx, int button, int clickCount) {
+        if (!writable) {
+            throw new IllegalStateException("Log is read-only");
+        }
+        int p = HEADER + count * RECORD;
+        if (p + RECORD > buf.capacity()) {
+            grow();
+        }
+        buf.putLong(p, time);
+        buf.putInt(p + 8, id);
+        buf.putInt(p + 12, x);
+        buf.putInt(p + 16, y);
+        buf.putInt(p + 20, xOnScreen);
+        buf.putInt(p + 24, yOnScreen);
+        buf.putInt(p + 28, modifiersEx);
+        buf.putShort(p + 32, (short) button);
+        buf.putShort(p + 34, (short) clickCount);
+        buf.putLong(8, ++count);
+    }
+
+    private void grow() {
+        long size = Math.min(Integer.MAX_VALUE, 2L * buf.capacity());
+        if (size < HEADER + (count + 1L) * RECORD) {
+            throw new IllegalStateException("Log is full");
+        }
+        try {
+            buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns number of records.
+     *
+     * @return number of records
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Returns time stamp of a record.
+     *
+     * @param i record index
+     * @return time stamp in nanoseconds
+     */
+    public long getTime(int i) {
+        return buf.getLong(offset(i));
+    }
+
+    /**
+     * Returns event id of a record.
+     *
+     * @param i record index
+     * @return event id
+     */
+    public int getId(int i) {
+        return buf.getInt(offset(i) + 8);
+    }
+
+    /**
+     * Returns x relative to the component.
+     *
+     * @param i record index
+     * @return x
+     */
+    public int getX(int i) {
+        return buf.getInt(offset(i) + 12);
+    }
+
+    /**
+     * Returns y relative to the component.
+     *
+     * @param i record index
+     * @return y
+     */
+    public int getY(int i) {
+        return buf.getInt(offset(i) + 16);
+    }
+
+    /**
+     * Returns x on screen.
+     *
+     * @param i record index
+     * @return x on screen
+     */
+    public int getXOnScreen(int i) {
+        return buf.getInt(offset(i) + 20);
+    }
+
+    /**
+     * Returns y on screen.
+     *
+     * @param i record index
+     * @return y on screen
+     */
+    public int getYOnScreen(int i) {
+        return buf.getInt(offset(i) + 24);
+    }
+
+    /**
+     * Returns extended modifiers.
+     *
+     * @param i record index
+     * @return extended modifiers
+     */
+    public int getModifiersEx(int i) {
+        return buf.getInt(offset(i) + 28);
+    }
+
+    /**
+     * Returns button.
+     *
+     * @param i record index
+     * @return button
+     */
+    public int getButton(int i) {
+        return buf.getShort(offset(i) + 32);
+    }
+
+    /**
+     * Returns click count.
+     *
+     * @param i record index
+     * @return click count
+     */
+    public int getClickCount(int i) {
+        return buf.getShort(offset(i) + 34);
+    }
+
+    private int offset(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Record " + i);
+        }
+        return HEADER + i * RECORD;
+    }
+
+    /**
+     * Closes the log, flushing a recorded file to storage.
+     *
+     * @throws IOException if the file could not be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (writable) {
+                buf.force();
+            }
+        } finally {
+            ch.close();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.kresdl.utilities;
+
+import java.awt.event.MouseEvent;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Input source replaying an {@link InputLog}. Needs no display. Events are
+ * delivered on the calling thread, and the simulated clock follows the log,
+ * starting at zero at the first record, so a replay is deterministic
+ * regardless of its speed.
+ */
+public class InputReplay extends SyntheticInputSource {
+
+    private final InputLog log;
+    private final long t0;
+    private int next;
+
+    /**
+     * Constructs replay of a log. The pointer starts at the position of the
+     * first record.
+     *
+     * @param log input log
+     */
+    public InputReplay(InputLog log) {
+        this.log = log;
+        t0 = log.size() > 0 ? log.getTime(0) : 0;
+        if (log.size() > 0) {
+            setLocation(log.getXOnScreen(0), log.getYOnScreen(0));
+        }
+    }
+
+    /**
+     * Returns time between first and last record, in nanoseconds.
+     *
+     * @return duration
+     */
+    public long getDuration() {
+        int n = log.size();
+        return n > 0 ? log.getTime(n - 1) - t0 : 0;
+    }
+
+    /**
+     * Returns true if all records have been replayed.
+     *
+     * @return true if done
+     */
+    public boolean isDone() {
+        return next >= log.size();
+    }
+
+    /**
+     * Restarts replay from the first record.
+     */
+    public void rewind() {
+        next = 0;
+        setTime(0);
+    }
+
+    /**
+     * Advances the simulated clock and delivers all events recorded up to the
+     * new time.
+     *
+     * @param nanos time to advance
+     * @return number of events delivered
+     */
+    public int advance(long nanos) {
+        long clock = getTime() + nanos;
+        int n = 0;
+        while (next < log.size() && log.getTime(next) - t0 <= clock) {
+            deliver(next++);
+            n++;
+        }
+        setTime(clock);
+        return n;
+    }
+
+    /**
+     * Delivers all remaining events as fast as possible.
+     *
+     * @return number of events delivered
+     */
+    public int replay() {
+        int n = log.size() - next;
+        while (next < log.size()) {
+            deliver(next++);
+        }
+        return n;
+    }
+
+    /**
+     * Delivers all remaining events paced in real time.
+     *
+     * @param speed speed relative to the recording, 2 for twice as fast
+     * @return number of events delivered
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public int replay(double speed) throws InterruptedException {
+        if (!(speed > 0)) {
+            throw new IllegalArgumentException("Speed <= 0");
+        }
+        long start = System.nanoTime(), base = getTime();
+        int n = 0;
+        while (next < log.size()) {
+            long due = start + (long) ((log.getTime(next) - t0 - base) / speed);
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            deliver(next++);
+            n++;
+        }
+        return n;
+    }
+
+    private void deliver(int i) {
+        long t = log.getTime(i) - t0;
+        if (t > getTime()) {
+            setTime(t);
+        }
+        dispatch(new MouseEvent(getSource(), log.getId(i), t / 1_000_000, log.getModifiersEx(i),
+                log.getX(i), log.getY(i), log.getXOnScreen(i), log.getYOnScreen(i),
+                log.getClickCount(i), false, log.getButton(i)));
+    }
+}
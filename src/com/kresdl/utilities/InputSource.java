@@ -0,0 +1,74 @@
+package com.kresdl.utilities;
+
+import java.awt.Point;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+
+/**
+ * Source of mouse input for {@link AbstractMouse}. Decouples the mice from
+ * AWT components and the native pointer, so that they can be driven by
+ * synthetic or replayed input in headless environments.
+ * <p>
+ * Every source has a clock. Event time stamps and scheduled tasks use it, so
+ * that time-dependent processing such as coalescing and filtering behaves
+ * the same whether input is live, synthetic or replayed.
+ */
+public interface InputSource {
+
+    /**
+     * Adds a listener for press and release events.
+     *
+     * @param l listener
+     */
+    void addMouseListener(MouseListener l);
+
+    /**
+     * Adds a listener for move and drag events.
+     *
+     * @param l listener
+     */
+    void addMouseMotionListener(MouseMotionListener l);
+
+    /**
+     * Adds a callback run whenever the source is shown or hidden.
+     *
+     * @param r callback
+     */
+    void addShowingListener(Runnable r);
+
+    /**
+     * Returns the pointer position on screen.
+     *
+     * @return pointer position
+     */
+    Point getLocation();
+
+    /**
+     * Returns the current time of the source's clock. Only differences
+     * between times are meaningful.
+     *
+     * @return time in nanoseconds
+     */
+    long getTime();
+
+    /**
+     * Returns the time of an event on the source's clock. Defaults to the
+     * time the event was created.
+     *
+     * @param e event delivered by this source
+     * @return time in nanoseconds
+     */
+    default long getTime(MouseEvent e) {
+        return e.getWhen() * 1_000_000L;
+    }
+
+    /**
+     * Runs a task once, on the thread that delivers events, after the
+     * source's clock has advanced by a delay.
+     *
+     * @param r task
+     * @param delay delay in nanoseconds
+     */
+    void schedule(Runnable r, long delay);
+}
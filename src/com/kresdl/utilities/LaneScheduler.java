@@ -0,0 +1,224 @@
+package com.kresdl.utilities;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Priority lanes in front of an executor. Every queued task is matched by one
+ * pump submitted to the executor; when a pump runs, it takes the most urgent
+ * task across all lanes rather than the one it was submitted for. A lower lane
+ * whose oldest task has waited longer than the starvation limit may be served
+ * first, but only once per AGED_SHARE tasks taken in priority order, so no
+ * lane is starved indefinitely and a backlog of aged tasks cannot overtake
+ * the higher lanes.
+ * <p>
+ * With an in-flight limit, every task holds a permit from the moment it is
+ * submitted until it leaves its lane, after running or being discarded. A
+ * task that finds no permit is handled according to the overflow policy.
+ * <p>
+ * Tasks passed to execute have no future to report failures through, so
+ * their exceptions go to the uncaught exception handler of the worker.
+ */
+class LaneScheduler {
+
+    private static final int AGED_SHARE = 4;
+
+    private final Executor pool;
+    private final TaskMetrics metrics;
+    private final Queue<Task>[] lanes;
+    private volatile long starvationLimit = 100_000_000L;
+    private volatile TaskManager.Expiry expiry = TaskManager.Expiry.DROP;
+    private volatile Semaphore permits;
+    private volatile TaskManager.Overflow overflow = TaskManager.Overflow.BLOCK;
+    private final AtomicInteger sinceAged = new AtomicInteger(AGED_SHARE);
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    LaneScheduler(Executor pool, TaskMetrics metrics) {
+        this.pool = pool;
+        this.metrics = metrics;
+        int n = TaskManager.Priority.values().length;
+        lanes = new Queue[n];
+        for (int i = 0; i < n; i++) {
+            lanes[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    void setStarvationLimit(long nanos) {
+        starvationLimit = nanos;
+    }
+
+    void setExpiry(TaskManager.Expiry expiry) {
+        this.expiry = expiry;
+    }
+
+    void setLimit(int limit, TaskManager.Overflow overflow) {
+        this.overflow = overflow;
+        permits = limit > 0 ? new Semaphore(limit) : null;
+    }
+
+    FutureTask<Void> submit(Runnable r, TaskManager.Priority p, long deadline) {
+        return submit(r, p, deadline, false);
+    }
+
+    void execute(Runnable r, TaskManager.Priority p) {
+        submit(r, p, 0L, true);
+    }
+
+    private FutureTask<Void> submit(Runnable r, TaskManager.Priority p, long deadline, boolean report) {
+        Semaphore s = permits;
+        if (s != null && !s.tryAcquire()) {
+            switch (overflow) {
+                case CALLER_RUNS:
+                    if (report) {
+                        metrics.run(r);
+                        return null;
+                    }
+                    FutureTask<Void> t = new FutureTask<>(() -> metrics.run(r), null);
+                    t.run();
+                    return t;
+                case REJECT:
+                    metrics.rejectedBeforeSubmit();
+                    throw new RejectedExecutionException("In-flight limit reached");
+                default:
+                    try {
+                        s.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        metrics.rejectedBeforeSubmit();
+                        throw new RejectedExecutionException("Interrupted", e);
+                    }
+            }
+        }
+        return submit(r, p, deadline, report, s);
+    }
+
+    FutureTask<Void> trySubmit(Runnable r, TaskManager.Priority p) {
+        Semaphore s = permits;
+        if (s != null && !s.tryAcquire()) {
+            return null;
+        }
+        return submit(r, p, 0L, false, s);
+    }
+
+    private FutureTask<Void> submit(Runnable r, TaskManager.Priority p, long deadline, boolean report, Semaphore s) {
+        Task t = new Task(metrics.wrap(r), p.ordinal(), deadline, report);
+        t.permits = s;
+        enqueue(t);
+        return t;
+    }
+
+    private void enqueue(Task t) {
+        t.queued = System.nanoTime();
+        Queue<Task> lane = lanes[t.lane];
+        lane.add(t);
+        try {
+            pool.execute(this::pump);
+        } catch (RejectedExecutionException e) {
+            if (lane.remove(t)) {
+                metrics.rejected();
+                t.cancel(false);
+                release(t);
+            }
+            throw e;
+        }
+    }
+
+    private void pump() {
+        Task t;
+        while ((t = next()) != null) {
+            if (t.deadline == 0L || t.deadline - System.nanoTime() > 0L) {
+                try {
+                    t.run();
+                } finally {
+                    release(t);
+                }
+                return;
+            }
+            metrics.expired();
+            if (expiry == TaskManager.Expiry.DEFER) {
+                Task d = new Task(t, TaskManager.Priority.BACKGROUND.ordinal(), 0L, false);
+                d.permits = t.permits;
+                t.permits = null;
+                try {
+                    enqueue(d);
+                } catch (RejectedExecutionException e) {
+                    t.cancel(false);
+                }
+                return;
+            }
+            t.cancel(false);
+            release(t);
+        }
+    }
+
+    private Task next() {
+        int aged = sinceAged.get();
+        if (aged >= AGED_SHARE) {
+            long now = System.nanoTime();
+            long limit = starvationLimit;
+            for (int i = 1; i < lanes.length; i++) {
+                Task t = lanes[i].peek();
+                if (t != null && now - t.queued > limit && sinceAged.compareAndSet(aged, 0)) {
+                    t = lanes[i].poll();
+                    if (t != null) {
+                        return t;
+                    }
+                    break;
+                }
+            }
+        }
+        for (Queue<Task> lane : lanes) {
+            Task t = lane.poll();
+            if (t != null) {
+                if (sinceAged.get() < AGED_SHARE) {
+                    sinceAged.incrementAndGet();
+                }
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private static void release(Task t) {
+        Semaphore s = t.permits;
+        if (s != null) {
+            t.permits = null;
+            s.release();
+        }
+    }
+
+    /**
+     * Queued task. Deferring wraps the expired task in a new one without a
+     * deadline, so that the future handed to the caller completes when the
+     * deferred task runs. The permit, if any, moves to the new task.
+     */
+    private static class Task extends FutureTask<Void> {
+
+        final int lane;
+        final long deadline;
+        final boolean report;
+        long queued;
+        Semaphore permits;
+
+        Task(Runnable r, int lane, long deadline, boolean report) {
+            super(r, null);
+            this.lane = lane;
+            this.deadline = deadline;
+            this.report = report;
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            super.setException(t);
+            if (report) {
+                Thread th = Thread.currentThread();
+                th.getUncaughtExceptionHandler().uncaughtException(th, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.kresdl.utilities;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Row-major 4x4 matrices stored in double arrays of length 16. Vectors are
+ * treated as rows and multiplied from the left, the same convention as
+ * Matrix, so that a view-projection transform is view * proj.
+ */
+abstract class Mat4 {
+
+    /**
+     * Writes a look-at view matrix with the y-axis as up vector.
+     *
+     * @param m destination
+     * @param ex eye x
+     * @param ey eye y
+     * @param ez eye z
+     * @param tx target x
+     * @param ty target y
+     * @param tz target z
+     * @param gl right-handed OpenGL-space if true, left-handed otherwise
+     * @return m
+     */
+    static double[] view(double[] m, double ex, double ey, double ez, double tx, double ty, double tz, boolean gl) {
+        double fx = tx - ex, fy = ty - ey, fz = tz - ez;
+        double l = 1.0d / Math.sqrt(fx * fx + fy * fy + fz * fz);
+        fx *= l;
+        fy *= l;
+        fz *= l;
+        if (gl) {
+            fx = -fx;
+            fy = -fy;
+            fz = -fz;
+        }
+        // side = up x forward, or forward x up in OpenGL-space (with forward negated)
+        double sx = fz, sy = 0.0d, sz = -fx;
+        l = 1.0d / Math.sqrt(sx * sx + sz * sz);
+        sx *= l;
+        sz *= l;
+        double ux = fy * sz, uy = fz * sx - fx * sz, uz = -fy * sx;
+
+        m[0] = sx;
+        m[1] = ux;
+        m[2] = fx;
+        m[3] = 0.0d;
+        m[4] = sy;
+        m[5] = uy;
+        m[6] = fy;
+        m[7] = 0.0d;
+        m[8] = sz;
+        m[9] = uz;
+        m[10] = fz;
+        m[11] = 0.0d;
+        m[12] = -(sx * ex + sy * ey + sz * ez);
+        m[13] = -(ux * ex + uy * ey + uz * ez);
+        m[14] = -(fx * ex + fy * ey + fz * ez);
+        m[15] = 1.0d;
+        return m;
+    }
+
+    /**
+     * Writes a perspective projection matrix. Depth is mapped to range 0-1,
+     * or -1-1 in OpenGL-space.
+     *
+     * @param m destination
+     * @param zNear near z plane
+     * @param zFar far z plane
+     * @param fov vertical angle of field-of-view in radians
+     * @param aspectRatio viewport's width/height
+     * @param gl right-handed OpenGL-space if true, left-handed otherwise
+     * @return m
+     */
+    static double[] proj(double[] m, double zNear, double zFar, double fov, double aspectRatio, boolean gl) {
+        double ys = 1.0d / Math.tan(fov * 0.5d);
+        Arrays.fill(m, 0.0d);
+        m[0] = ys / aspectRatio;
+        m[5] = ys;
+        if (gl) {
+            m[10] = (zFar + zNear) / (zNear - zFar);
+            m[11] = -1.0d;
+            m[14] = 2.0d * zFar * zNear / (zNear - zFar);
+        } else {
+            m[10] = zFar / (zFar - zNear);
+            m[11] = 1.0d;
+            m[14] = -zNear * zFar / (zFar - zNear);
+        }
+        return m;
+    }
+
+    /**
+     * Multiplies two matrices. Destination may not be one of the operands.
+     *
+     * @param a matrix a
+     * @param b matrix b
+     * @param m destination
+     * @return m = a * b
+     */
+    static double[] mul(double[] a, double[] b, double[] m) {
+        for (int i = 0; i < 16; i += 4) {
+            for (int j = 0; j < 4; j++) {
+                m[i + j] = a[i] * b[j] + a[i + 1] * b[4 + j] + a[i + 2] * b[8 + j] + a[i + 3] * b[12 + j];
+            }
+        }
+        return m;
+    }
+
+    /**
+     * Transforms x, y, z triplets. In clip space, x, y, z, w quadruplets are
+     * written, otherwise x, y, z triplets after perspective divide and, in
+     * screen space, viewport mapping.
+     *
+     * @param m matrix
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width
+     * @param height viewport height
+     */
+    static void transform(double[] m, float[] src, int srcOff, float[] dst, int dstOff, int n,
+            int space, double width, double height) {
+        if (space == Camera.CLIP) {
+            for (int i = 0; i < n; i++, srcOff += 3) {
+                double x = src[srcOff], y = src[srcOff + 1], z = src[srcOff + 2];
+                dst[dstOff++] = (float) (x * m[0] + y * m[4] + z * m[8] + m[12]);
+                dst[dstOff++] = (float) (x * m[1] + y * m[5] + z * m[9] + m[13]);
+                dst[dstOff++] = (float) (x * m[2] + y * m[6] + z * m[10] + m[14]);
+                dst[dstOff++] = (float) (x * m[3] + y * m[7] + z * m[11] + m[15]);
+            }
+            return;
+        }
+        // NDC is screen space with unit scale and no offset
+        boolean screen = space == Camera.SCREEN;
+        double sx = screen ? 0.5d * width : 1.0d, sy = screen ? -0.5d * height : 1.0d;
+        double ox = screen ? sx : 0.0d, oy = screen ? -sy : 0.0d;
+        for (int i = 0; i < n; i++, srcOff += 3) {
+            double x = src[srcOff], y = src[srcOff + 1], z = src[srcOff + 2];
+            double w = 1.0d / (x * m[3] + y * m[7] + z * m[11] + m[15]);
+            dst[dstOff++] = (float) ((x * m[0] + y * m[4] + z * m[8] + m[12]) * w * sx + ox);
+            dst[dstOff++] = (float) ((x * m[1] + y * m[5] + z * m[9] + m[13]) * w * sy + oy);
+            dst[dstOff++] = (float) ((x * m[2] + y * m[6] + z * m[10] + m[14]) * w);
+        }
+    }
+
+    /**
+     * Transforms x, y, z triplets. See
+     * {@link #transform(double[], float[], int, float[], int, int, int, double, double)}.
+     *
+     * @param m matrix
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width
+     * @param height viewport height
+     */
+    static void transform(double[] m, double[] src, int srcOff, double[] dst, int dstOff, int n,
+            int space, double width, double height) {
+        if (space == Camera.CLIP) {
+            for (int i = 0; i < n; i++, srcOff += 3) {
+                double x = src[srcOff], y = src[srcOff + 1], z = src[srcOff + 2];
+                dst[dstOff++] = x * m[0] + y * m[4] + z * m[8] + m[12];
+                dst[dstOff++] = x * m[1] + y * m[5] + z * m[9] + m[13];
+                dst[dstOff++] = x * m[2] + y * m[6] + z * m[10] + m[14];
+                dst[dstOff++] = x * m[3] + y * m[7] + z * m[11] + m[15];
+            }
+            return;
+        }
+        boolean screen = space == Camera.SCREEN;
+        double sx = screen ? 0.5d * width : 1.0d, sy = screen ? -0.5d * height : 1.0d;
+        double ox = screen ? sx : 0.0d, oy = screen ? -sy : 0.0d;
+        for (int i = 0; i < n; i++, srcOff += 3) {
+            double x = src[srcOff], y = src[srcOff + 1], z = src[srcOff + 2];
+            double w = 1.0d / (x * m[3] + y * m[7] + z * m[11] + m[15]);
+            dst[dstOff++] = (x * m[0] + y * m[4] + z * m[8] + m[12]) * w * sx + ox;
+            dst[dstOff++] = (x * m[1] + y * m[5] + z * m[9] + m[13]) * w * sy + oy;
+            dst[dstOff++] = (x * m[2] + y * m[6] + z * m[10] + m[14]) * w;
+        }
+    }
+
+    /**
+     * Transforms x, y, z triplets between absolute buffer indices. See
+     * {@link #transform(double[], float[], int, float[], int, int, int, double, double)}.
+     *
+     * @param m matrix
+     * @param src source positions
+     * @param srcOff index into source buffer
+     * @param dst destination buffer
+     * @param dstOff index into destination buffer
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width
+     * @param height viewport height
+     */
+    static void transform(double[] m, FloatBuffer src, int srcOff, FloatBuffer dst, int dstOff, int n,
+            int space, double width, double height) {
+        if (space == Camera.CLIP) {
+            for (int i = 0; i < n; i++, srcOff += 3) {
+                double x = src.get(srcOff), y = src.get(srcOff + 1), z = src.get(srcOff + 2);
+                dst.put(dstOff++, (float) (x * m[0] + y * m[4] + z * m[8] + m[12]));
+                dst.put(dstOff++, (float) (x * m[1] + y * m[5] + z * m[9] + m[13]));
+                dst.put(dstOff++, (float) (x * m[2] + y * m[6] + z * m[10] + m[14]));
+                dst.put(dstOff++, (float) (x * m[3] + y * m[7] + z * m[11] + m[15]));
+            }
+            return;
+        }
+        boolean screen = space == Camera.SCREEN;
+        double sx = screen ? 0.5d * width : 1.0d, sy = screen ? -0.5d * height : 1.0d;
+        double ox = screen ? sx : 0.0d, oy = screen ? -sy : 0.0d;
+        for (int i = 0; i < n; i++, srcOff += 3) {
+            double x = src.get(srcOff), y = src.get(srcOff + 1), z = src.get(srcOff + 2);
+            double w = 1.0d / (x * m[3] + y * m[7] + z * m[11] + m[15]);
+            dst.put(dstOff++, (float) ((x * m[0] + y * m[4] + z * m[8] + m[12]) * w * sx + ox));
+            dst.put(dstOff++, (float) ((x * m[1] + y * m[5] + z * m[9] + m[13]) * w * sy + oy));
+            dst.put(dstOff++, (float) ((x * m[2] + y * m[6] + z * m[10] + m[14]) * w));
+        }
+    }
+
+    /**
+     * Transforms x, y, z triplets, split into ranges distributed over a task
+     * manager. See
+     * {@link #transform(double[], float[], int, float[], int, int, int, double, double)}.
+     *
+     * @param tm task manager
+     * @param m matrix
+     * @param src source positions
+     * @param srcOff offset into source array
+     * @param dst destination array
+     * @param dstOff offset into destination array
+     * @param n number of positions
+     * @param space Camera.CLIP, Camera.NDC or Camera.SCREEN
+     * @param width viewport width
+     * @param height viewport height
+     */
+    static void transform(TaskManager tm, double[] m, float[] src, int srcOff, float[] dst, int dstOff, int n,
+            int space, double width, double height) {
+        int stride = space == Camera.CLIP ? 4 : 3;
+        int k = Math.max(1, Math.min(tm.getParallelism(), n / 16384));
+        List<Runnable> s = new ArrayList<>(k);
+        for (int i = 0; i < k; i++) {
+            int from = (int) ((long) n * i / k), to = (int) ((long) n * (i + 1) / k);
+            s.add(() -> transform(m, src, srcOff + from * 3, dst, dstOff + from * stride, to - from, space, width, height));
+        }
+        tm.distribute(s);
+    }
+}
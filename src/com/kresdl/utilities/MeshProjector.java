@@ -0,0 +1,205 @@
+package com.kresdl.utilities;
+
+/**
+ * Projects indexed meshes to screen space and culls back faces. Vertices are
+ * transformed once per call into primitive arrays, then every face is tested
+ * in a single pass and the visible ones are collected in a compact list.
+ * <p>
+ * There is no near-plane clipping. A face with any vertex at or behind the
+ * eye (w &lt;= 0) is culled as a whole. Large faces such as ground planes
+ * and walls therefore vanish as soon as the camera comes close enough for
+ * one of their vertices to pass behind it. Split such geometry into smaller
+ * faces, or clip it before projecting.
+ */
+public class MeshProjector {
+
+    private final double[] m = new double[16];
+    private int width, height;
+
+    private double[] x = new double[0], y = new double[0], z = new double[0];
+    private boolean[] front = new boolean[0];
+    private int[] faces = new int[0];
+    private int faceSize, visible;
+    private int[] indices;
+
+    /**
+     * Constructs projector for a viewport.
+     *
+     * @param width viewport width in pixels
+     * @param height viewport height in pixels
+     */
+    public MeshProjector(int width, int height) {
+        setViewport(width, height);
+    }
+
+    /**
+     * Sets viewport size.
+     *
+     * @param width viewport width in pixels
+     * @param height viewport height in pixels
+     */
+    public void setViewport(int width, int height) {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Projects vertices and collects visible faces.
+     *
+     * @param camera camera
+     * @param vertices vertex positions as x, y, z triplets
+     * @param vertexCount number of vertices
+     * @param indices vertex indices, faceSize per face
+     * @param faceSize number of vertices per face, at least 3
+     * @param faceCount number of faces
+     * @param backFacing invert face cull
+     * @return number of visible faces
+     * @throws IllegalArgumentException if faceSize is less than 3
+     */
+    public int project(Camera camera, float[] vertices, int vertexCount, int[] indices, int faceSize, int faceCount, boolean backFacing) {
+        if (faceSize < 3) {
+            throw new IllegalArgumentException("Face size < 3");
+        }
+        prepare(camera, vertexCount);
+        for (int i = 0, j = 0; i < vertexCount; i++, j += 3) {
+            vertex(i, vertices[j], vertices[j + 1], vertices[j + 2]);
+        }
+        return cull(indices, faceSize, faceCount, backFacing);
+    }
+
+    /**
+     * Projects vertices and collects visible faces.
+     *
+     * @param camera camera
+     * @param vertices vertex positions as x, y, z triplets
+     * @param vertexCount number of vertices
+     * @param indices vertex indices, faceSize per face
+     * @param faceSize number of vertices per face, at least 3
+     * @param faceCount number of faces
+     * @param backFacing invert face cull
+     * @return number of visible faces
+     * @throws IllegalArgumentException if faceSize is less than 3
+     */
+    public int project(Camera camera, double[] vertices, int vertexCount, int[] indices, int faceSize, int faceCount, boolean backFacing) {
+        if (faceSize < 3) {
+            throw new IllegalArgumentException("Face size < 3");
+        }
+        prepare(camera, vertexCount);
+        for (int i = 0, j = 0; i < vertexCount; i++, j += 3) {
+            vertex(i, vertices[j], vertices[j + 1], vertices[j + 2]);
+        }
+        return cull(indices, faceSize, faceCount, backFacing);
+    }
+
+    private void prepare(Camera camera, int vertexCount) {
+        camera.getMatrix(m);
+        if (x.length < vertexCount) {
+            x = new double[vertexCount];
+            y = new double[vertexCount];
+            z = new double[vertexCount];
+            front = new boolean[vertexCount];
+        }
+    }
+
+    private void vertex(int i, double vx, double vy, double vz) {
+        double[] t = m;
+        double w = vx * t[3] + vy * t[7] + vz * t[11] + t[15];
+        front[i] = w > 0.0d;
+        w = 1.0d / w;
+        x[i] = ((vx * t[0] + vy * t[4] + vz * t[8] + t[12]) * w + 1.0d) * 0.5d * width;
+        y[i] = (1.0d - (vx * t[1] + vy * t[5] + vz * t[9] + t[13]) * w) * 0.5d * height;
+        z[i] = (vx * t[2] + vy * t[6] + vz * t[10] + t[14]) * w;
+    }
+
+    private int cull(int[] indices, int faceSize, int faceCount, boolean backFacing) {
+        if (faces.length < faceCount) {
+            faces = new int[faceCount];
+        }
+        this.indices = indices;
+        this.faceSize = faceSize;
+        int n = 0;
+        for (int f = 0, i = 0; f < faceCount; f++, i += faceSize) {
+            int a = indices[i], b = indices[i + 1], c = indices[i + 2];
+            boolean inFront = front[a] && front[b] && front[c];
+            for (int q = 3; q < faceSize; q++) {
+                inFront &= front[indices[i + q]];
+            }
+            if (inFront && Poly.isVisible(x[a], y[a], x[b], y[b], x[c], y[c]) != backFacing) {
+                faces[n++] = f;
+            }
+        }
+        return visible = n;
+    }
+
+    /**
+     * Returns number of visible faces from the last projection.
+     *
+     * @return number of visible faces
+     */
+    public int getVisibleCount() {
+        return visible;
+    }
+
+    /**
+     * Returns visible face indices. Only the first getVisibleCount() entries
+     * are valid.
+     *
+     * @return face indices
+     */
+    public int[] getVisibleFaces() {
+        return faces;
+    }
+
+    /**
+     * Returns screen-space x coordinates of projected vertices.
+     *
+     * @return x coordinates
+     */
+    public double[] getX() {
+        return x;
+    }
+
+    /**
+     * Returns screen-space y coordinates of projected vertices.
+     *
+     * @return y coordinates
+     */
+    public double[] getY() {
+        return y;
+    }
+
+    /**
+     * Returns depth of projected vertices after perspective divide.
+     *
+     * @return depth values
+     */
+    public double[] getZ() {
+        return z;
+    }
+
+    int[] getIndices() {
+        return indices;
+    }
+
+    int getFaceSize() {
+        return faceSize;
+    }
+
+    /**
+     * Initializes a polygon with the projected points of a face.
+     *
+     * @param face face index
+     * @param p polygon with room for the face's points
+     * @return p
+     */
+    public Poly toPoly(int face, Poly p) {
+        for (int q = 0, i = face * faceSize; q < faceSize; q++) {
+            int v = indices[i + q];
+            p.xpoints[q] = (int) x[v];
+            p.ypoints[q] = (int) y[v];
+        }
+        p.npoints = faceSize;
+        p.invalidate();
+        return p;
+    }
+}
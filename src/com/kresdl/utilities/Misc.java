@@ -166,6 +166,7 @@ public abstract class Misc {
      * @param p array of size n + 2 to be used for generating curve points, end
      * points included. If null, an array will be allocated.
      * @return array consisting of n + 2 curve points, end points included.
+     * @see Bezier
      */
     public static Point[] bezier(Point[] c, int n, Point[] p) {
         Vec2 u = new Vec2(c[0]);
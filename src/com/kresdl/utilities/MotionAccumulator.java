@@ -0,0 +1,100 @@
+package com.kresdl.utilities;
+
+/**
+ * Accumulates mouse deltas between frames. Deltas are scaled by a gain and
+ * summed in double precision. Taking whole pixels leaves the fractional
+ * remainder in the accumulator, so a sequence of takes never drifts from the
+ * exact total. Not thread-safe; typically fed from a {@link MouseRing} on the
+ * thread that drains it.
+ */
+public class MotionAccumulator implements MouseRing.Sink {
+
+    private double gain, x, y;
+    private int count;
+
+    /**
+     * Constructs accumulator with unit gain.
+     */
+    public MotionAccumulator() {
+        this(1);
+    }
+
+    /**
+     * Constructs accumulator.
+     *
+     * @param gain scale factor applied to every delta
+     */
+    public MotionAccumulator(double gain) {
+        this.gain = gain;
+    }
+
+    /**
+     * Sets gain. Movement already accumulated is not rescaled.
+     *
+     * @param gain scale factor applied to every delta
+     */
+    public void setGain(double gain) {
+        this.gain = gain;
+    }
+
+    /**
+     * Adds a delta.
+     *
+     * @param dx horizontal delta
+     * @param dy vertical delta
+     */
+    public void add(double dx, double dy) {
+        x += dx * gain;
+        y += dy * gain;
+        count++;
+    }
+
+    @Override
+    public void accept(long time, int dx, int dy) {
+        add(dx, dy);
+    }
+
+    /**
+     * Returns number of deltas added since the last take.
+     *
+     * @return number of deltas
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Takes all accumulated movement.
+     *
+     * @param d receives horizontal and vertical movement at index 0 and 1
+     */
+    public void take(double[] d) {
+        d[0] = x;
+        d[1] = y;
+        x = y = 0;
+        count = 0;
+    }
+
+    /**
+     * Takes the whole pixels of the accumulated movement, keeping the
+     * fractional remainder for later.
+     *
+     * @param d receives horizontal and vertical movement at index 0 and 1
+     */
+    public void take(int[] d) {
+        int ix = (int) x, iy = (int) y;
+        x -= ix;
+        y -= iy;
+        d[0] = ix;
+        d[1] = iy;
+        count = 0;
+    }
+
+    /**
+     * Discards accumulated movement.
+     */
+    public void reset() {
+        x = y = 0;
+        count = 0;
+    }
+}
@@ -0,0 +1,182 @@
+package com.kresdl.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Smoothing filter for mouse deltas. Implementations keep their state in
+ * primitive fields and do not allocate per sample.
+ */
+public interface MotionFilter {
+
+    /**
+     * Filters a delta.
+     *
+     * @param time time stamp in nanoseconds on the input source's clock
+     * @param dx horizontal delta
+     * @param dy vertical delta
+     * @param out receives filtered horizontal and vertical delta at index 0
+     * and 1
+     */
+    void filter(long time, double dx, double dy, double[] out);
+
+    /**
+     * Clears filter state.
+     */
+    void reset();
+
+    /**
+     * Moving average over a fixed window of samples, kept as a running sum.
+     * The window starts out filled with zeros.
+     */
+    public static class Box implements MotionFilter {
+
+        private final double[] x, y;
+        private double sx, sy;
+        private int q;
+
+        /**
+         * Constructs box filter.
+         *
+         * @param window number of samples averaged
+         */
+        public Box(int window) {
+            if (window < 1) {
+                throw new IllegalArgumentException("Window < 1");
+            }
+            x = new double[window];
+            y = new double[window];
+        }
+
+        @Override
+        public void filter(long time, double dx, double dy, double[] out) {
+            sx += dx - x[q];
+            sy += dy - y[q];
+            x[q] = dx;
+            y[q] = dy;
+            if (++q == x.length) {
+                q = 0;
+                sx = sum(x);
+                sy = sum(y);
+            }
+            out[0] = sx / x.length;
+            out[1] = sy / y.length;
+        }
+
+        private static double sum(double[] a) {
+            double s = 0;
+            for (double v : a) {
+                s += v;
+            }
+            return s;
+        }
+
+        @Override
+        public void reset() {
+            Arrays.fill(x, 0);
+            Arrays.fill(y, 0);
+            sx = sy = 0;
+            q = 0;
+        }
+    }
+
+    /**
+     * Exponential moving average.
+     */
+    public static class Exponential implements MotionFilter {
+
+        private final double alpha;
+        private double x, y;
+
+        /**
+         * Constructs exponential filter.
+         *
+         * @param alpha weight of the newest sample, 0 exclusive to 1 inclusive
+         */
+        public Exponential(double alpha) {
+            if (!(alpha > 0 && alpha <= 1)) {
+                throw new IllegalArgumentException("Alpha out of range");
+            }
+            this.alpha = alpha;
+        }
+
+        @Override
+        public void filter(long time, double dx, double dy, double[] out) {
+            x += alpha * (dx - x);
+            y += alpha * (dy - y);
+            out[0] = x;
+            out[1] = y;
+        }
+
+        @Override
+        public void reset() {
+            x = y = 0;
+        }
+    }
+
+    /**
+     * One Euro filter. A low-pass filter whose cutoff frequency rises with
+     * pointer speed, smoothing jitter at low speed while keeping lag low at
+     * high speed. The cutoff is minCutoff + beta * speed, where speed is the
+     * low-passed magnitude of the delta in pixels per second.
+     */
+    public static class OneEuro implements MotionFilter {
+
+        private final double minCutoff, beta, dCutoff;
+        private double x, y, speed;
+        private long last;
+        private boolean primed;
+
+        /**
+         * Constructs One Euro filter.
+         *
+         * @param minCutoff cutoff frequency at rest, in Hz
+         * @param beta cutoff increase per pixel per second of speed
+         * @param dCutoff cutoff frequency for the speed estimate, in Hz
+         */
+        public OneEuro(double minCutoff, double beta, double dCutoff) {
+            if (minCutoff <= 0 || dCutoff <= 0 || beta < 0) {
+                throw new IllegalArgumentException("Parameter out of range");
+            }
+            this.minCutoff = minCutoff;
+            this.beta = beta;
+            this.dCutoff = dCutoff;
+        }
+
+        /**
+         * Constructs One Euro filter with a cutoff of 1 Hz at rest, beta
+         * 0.007 and a speed cutoff of 1 Hz.
+         */
+        public OneEuro() {
+            this(1, 0.007, 1);
+        }
+
+        @Override
+        public void filter(long time, double dx, double dy, double[] out) {
+            if (!primed) {
+                primed = true;
+                x = dx;
+                y = dy;
+            } else {
+                double dt = Math.max(1e-4, (time - last) * 1e-9);
+                speed += alpha(dCutoff, dt) * (Math.sqrt(dx * dx + dy * dy) / dt - speed);
+                double a = alpha(minCutoff + beta * speed, dt);
+                x += a * (dx - x);
+                y += a * (dy - y);
+            }
+            last = time;
+            out[0] = x;
+            out[1] = y;
+        }
+
+        private static double alpha(double cutoff, double dt) {
+            double tau = 1 / (2 * Math.PI * cutoff);
+            return 1 / (1 + tau / dt);
+        }
+
+        @Override
+        public void reset() {
+            x = y = speed = 0;
+            primed = false;
+        }
+    }
+}
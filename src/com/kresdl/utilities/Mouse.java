@@ -8,7 +8,7 @@ import java.awt.Point;
  */
 public class Mouse extends AbstractMouse {
 
-    private Point movement = new Point();
+    private int mx, my;
 
     /**
      * Construct Mouse and registers it on given component.
@@ -19,12 +19,22 @@ public class Mouse extends AbstractMouse {
         super(c);
     }
 
+    /**
+     * Constructs Mouse and registers it on given input source.
+     *
+     * @param s input source
+     */
+    public Mouse(InputSource s) {
+        super(s);
+    }
+
     @Override
-    synchronized boolean test(Point d) {
-        if (d.x == 0 && d.y == 0) {
+    boolean test(int dx, int dy, int sx, int sy, long time) {
+        if (dx == 0 && dy == 0) {
             return false;
         }
-        movement = d;
+        mx = dx;
+        my = dy;
         return true;
     }
 
@@ -33,8 +43,9 @@ public class Mouse extends AbstractMouse {
      *
      * @return mouse movement
      */
-    public synchronized Point getMovement() {
-        old = current;
-        return movement;
+    public Point getMovement() {
+        oldX = curX;
+        oldY = curY;
+        return new Point(mx, my);
     }
 }
@@ -0,0 +1,217 @@
+package com.kresdl.utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free single-producer, single-consumer ring of timestamped mouse
+ * deltas. Typically the event dispatch thread offers one sample per motion
+ * event and a render thread drains all pending samples once per frame.
+ * Samples are kept in primitive arrays, so neither side allocates or locks.
+ * <p>
+ * When the ring is full, offered deltas are not lost but summed into a carry.
+ * The carry is merged into the next sample that fits, or, if none has been
+ * offered by then, delivered by the next drain as one extra sample after the
+ * queued ones. Either way, samples are delivered in time stamp order.
+ */
+public class MouseRing {
+
+    private final long[] time;
+    private final int[] dx, dy;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(), tail = new AtomicLong();
+    // Carried deltas packed as dx << 32 | dy, taken by either side at once
+    private final AtomicLong carry = new AtomicLong(), carryTime = new AtomicLong();
+    private long overflows;
+
+    /**
+     * Sample consumer.
+     */
+    @FunctionalInterface
+    public interface Sink {
+
+        /**
+         * Accepts a sample.
+         *
+         * @param time time stamp in nanoseconds on the input source's clock
+         * @param dx horizontal delta in pixels
+         * @param dy vertical delta in pixels
+         */
+        void accept(long time, int dx, int dy);
+    }
+
+    /**
+     * Constructs ring.
+     *
+     * @param capacity minimum capacity, rounded up to a power of two
+     */
+    public MouseRing(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Capacity out of range");
+        }
+        int n = Integer.highestOneBit(capacity);
+        if (n < capacity) {
+            n <<= 1;
+        }
+        time = new long[n];
+        dx = new int[n];
+        dy = new int[n];
+        mask = n - 1;
+    }
+
+    /**
+     * Returns capacity.
+     *
+     * @return capacity
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Returns number of pending samples, not counting the carry.
+     *
+     * @return number of pending samples
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Adds a sample. Producer thread only.
+     *
+     * @param time time stamp in nanoseconds
+     * @param dx horizontal delta
+     * @param dy vertical delta
+     * @return false if the ring was full and the delta was carried over
+     */
+    public boolean offer(long time, int dx, int dy) {
+        long t = tail.get();
+        if (t - head.get() > mask) {
+            carryTime.lazySet(time);
+            long c;
+            do {
+                c = carry.get();
+            } while (!carry.compareAndSet(c, pack(x(c) + dx, y(c) + dy)));
+            overflows++;
+            return false;
+        }
+        if (carry.get() != 0) {
+            long c = carry.getAndSet(0);
+            dx += x(c);
+            dy += y(c);
+        }
+        int i = (int) t & mask;
+        this.time[i] = time;
+        this.dx[i] = dx;
+        this.dy[i] = dy;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Returns number of samples that did not fit and were carried over.
+     * Producer thread only.
+     *
+     * @return number of overflows
+     */
+    public long getOverflowCount() {
+        return overflows;
+    }
+
+    /**
+     * Moves pending samples into arrays. Consumer thread only.
+     *
+     * @param time destination of time stamps, or null
+     * @param dx destination of horizontal deltas
+     * @param dy destination of vertical deltas
+     * @param offset destination offset
+     * @param max maximum number of samples
+     * @return number of samples drained
+     */
+    public int drain(long[] time, int[] dx, int[] dy, int offset, int max) {
+        long h = head.get();
+        int n = (int) Math.min(max, tail.get() - h);
+        for (int k = 0; k < n; k++) {
+            int i = (int) (h + k) & mask;
+            if (time != null) {
+                time[offset + k] = this.time[i];
+            }
+            dx[offset + k] = this.dx[i];
+            dy[offset + k] = this.dy[i];
+        }
+        head.lazySet(h + n);
+        long c;
+        if (n < max && carry.get() != 0 && (c = carry.getAndSet(0)) != 0) {
+            if (time != null) {
+                time[offset + n] = carryTime.get();
+            }
+            dx[offset + n] = x(c);
+            dy[offset + n] = y(c);
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Passes all pending samples to a sink. Consumer thread only.
+     *
+     * @param sink sample consumer
+     * @return number of samples drained
+     */
+    public int drain(Sink sink) {
+        long h = head.get();
+        long t = tail.get();
+        for (long k = h; k < t; k++) {
+            int i = (int) k & mask;
+            sink.accept(time[i], dx[i], dy[i]);
+        }
+        head.lazySet(t);
+        long c;
+        if (carry.get() != 0 && (c = carry.getAndSet(0)) != 0) {
+            sink.accept(carryTime.get(), x(c), y(c));
+            return (int) (t - h) + 1;
+        }
+        return (int) (t - h);
+    }
+
+    /**
+     * Sums all pending samples. Consumer thread only.
+     *
+     * @param d receives the summed horizontal and vertical deltas at index 0
+     * and 1
+     * @return number of samples drained
+     */
+    public int drainSum(int[] d) {
+        long h = head.get();
+        long t = tail.get();
+        int x = 0, y = 0;
+        for (long k = h; k < t; k++) {
+            int i = (int) k & mask;
+            x += dx[i];
+            y += dy[i];
+        }
+        head.lazySet(t);
+        int n = (int) (t - h);
+        long c;
+        if (carry.get() != 0 && (c = carry.getAndSet(0)) != 0) {
+            x += x(c);
+            y += y(c);
+            n++;
+        }
+        d[0] = x;
+        d[1] = y;
+        return n;
+    }
+
+    private static long pack(int x, int y) {
+        return (long) x << 32 | (y & 0xffffffffL);
+    }
+
+    private static int x(long c) {
+        return (int) (c >> 32);
+    }
+
+    private static int y(long c) {
+        return (int) c;
+    }
+}
@@ -0,0 +1,116 @@
+package com.kresdl.utilities;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Index range shared by the workers of a parallel loop. Workers claim chunks
+ * from the front of the remaining range. Chunks start large and shrink towards
+ * the grain size as the range drains, so that threads finishing early keep
+ * picking up work from slower ones.
+ * <p>
+ * This is guided self-scheduling on a shared cursor rather than ForkJoin
+ * work stealing. It balances uneven iterations just as well, and it works on
+ * any executor, not only a ForkJoinPool. It also needs no task object per
+ * split.
+ */
+class ParallelRange {
+
+    private final AtomicInteger next;
+    private final int to, grain, workers;
+    private final AtomicLong pending;
+    private final CountDownLatch done = new CountDownLatch(1);
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    ParallelRange(int from, int to, int grain, int workers) {
+        this.next = new AtomicInteger(from);
+        this.to = to;
+        this.grain = Math.max(1, grain);
+        this.workers = workers;
+        pending = new AtomicLong((long) to - from);
+        if (from >= to) {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Claims the next chunk.
+     *
+     * @return start and end packed as start << 32 | end, or -1 if the range
+     * is exhausted
+     */
+    long claim() {
+        for (;;) {
+            int s = next.get();
+            if (s >= to) {
+                return -1L;
+            }
+            long r = (long) to - s;
+            int c = (int) Math.max(grain, r / (2L * workers));
+            int e = r <= c ? to : s + c;
+            if (next.compareAndSet(s, e)) {
+                return ((long) s << 32) | (e & 0xffffffffL);
+            }
+        }
+    }
+
+    /**
+     * Marks a claimed chunk as completed.
+     *
+     * @param n number of indices in chunk
+     */
+    void complete(int n) {
+        if (pending.addAndGet(-n) == 0) {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Records a failure and gives up the unclaimed part of the range.
+     *
+     * @param t failure
+     * @param n number of indices in the failed chunk
+     */
+    void fail(Throwable t, int n) {
+        if (!failure.compareAndSet(null, t)) {
+            Throwable primary = failure.get();
+            if (primary != t) {
+                primary.addSuppressed(t);
+            }
+        }
+        abort();
+        complete(n);
+    }
+
+    void abort() {
+        int s = next.getAndSet(to);
+        if (s < to) {
+            complete(to - s);
+        }
+    }
+
+    void await() throws InterruptedException {
+        done.await();
+    }
+
+    void rethrow() {
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t != null) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    static int start(long chunk) {
+        return (int) (chunk >> 32);
+    }
+
+    static int end(long chunk) {
+        return (int) chunk;
+    }
+}
@@ -0,0 +1,315 @@
+package com.kresdl.utilities;
+
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Batch of line, quadratic and cubic segments, flattened together into one
+ * shared coordinate buffer. Control points are stored as separate x and y
+ * arrays. After {@link #flatten(double)}, the points of segment i occupy
+ * points getOffset(i) to getOffset(i + 1) - 1 of the coordinate buffer.
+ */
+public class PathBatch {
+
+    /**
+     * Segment types.
+     */
+    public static final byte LINE = 0, QUAD = 1, CUBIC = 2;
+
+    private byte[] type;
+    private int[] first;
+    private float[] px, py;
+    private int size, points;
+
+    private int[] offsets = new int[1];
+    private float[] xy = new float[0];
+
+    /**
+     * Constructs an empty batch.
+     *
+     * @param capacity initial segment capacity
+     */
+    public PathBatch(int capacity) {
+        capacity = Math.max(capacity, 1);
+        type = new byte[capacity];
+        first = new int[capacity];
+        px = new float[capacity * 4];
+        py = new float[capacity * 4];
+    }
+
+    /**
+     * Removes all segments. Allocated storage is kept.
+     */
+    public void clear() {
+        size = 0;
+        points = 0;
+        offsets[0] = 0;
+    }
+
+    /**
+     * Returns number of segments.
+     *
+     * @return number of segments
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a line segment.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of end point
+     * @param y1 y of end point
+     * @return segment index
+     */
+    public int addLine(float x0, float y0, float x1, float y1) {
+        int p = add(LINE, 2);
+        px[p] = x0;
+        py[p] = y0;
+        px[p + 1] = x1;
+        py[p + 1] = y1;
+        return size - 1;
+    }
+
+    /**
+     * Adds a quadratic segment.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of control point
+     * @param y1 y of control point
+     * @param x2 x of end point
+     * @param y2 y of end point
+     * @return segment index
+     */
+    public int addQuad(float x0, float y0, float x1, float y1, float x2, float y2) {
+        int p = add(QUAD, 3);
+        px[p] = x0;
+        py[p] = y0;
+        px[p + 1] = x1;
+        py[p + 1] = y1;
+        px[p + 2] = x2;
+        py[p + 2] = y2;
+        return size - 1;
+    }
+
+    /**
+     * Adds a cubic segment.
+     *
+     * @param x0 x of start point
+     * @param y0 y of start point
+     * @param x1 x of first control point
+     * @param y1 y of first control point
+     * @param x2 x of second control point
+     * @param y2 y of second control point
+     * @param x3 x of end point
+     * @param y3 y of end point
+     * @return segment index
+     */
+    public int addCubic(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3) {
+        int p = add(CUBIC, 4);
+        px[p] = x0;
+        py[p] = y0;
+        px[p + 1] = x1;
+        py[p + 1] = y1;
+        px[p + 2] = x2;
+        py[p + 2] = y2;
+        px[p + 3] = x3;
+        py[p + 3] = y3;
+        return size - 1;
+    }
+
+    private int add(byte t, int n) {
+        if (size == type.length) {
+            type = Arrays.copyOf(type, size * 2);
+            first = Arrays.copyOf(first, size * 2);
+        }
+        if (points + n > px.length) {
+            px = Arrays.copyOf(px, Math.max(px.length * 2, points + n));
+            py = Arrays.copyOf(py, px.length);
+        }
+        type[size] = t;
+        first[size++] = points;
+        points += n;
+        return points - n;
+    }
+
+    /**
+     * Flattens all segments in the calling thread.
+     *
+     * @param tolerance maximum distance from curves, in pixels
+     */
+    public void flatten(double tolerance) {
+        prepare();
+        count(0, size, tolerance);
+        allocate();
+        write(0, size);
+    }
+
+    /**
+     * Flattens all segments, split into ranges distributed over a task
+     * manager.
+     *
+     * @param tolerance maximum distance from curves, in pixels
+     * @param tm task manager
+     */
+    public void flatten(double tolerance, TaskManager tm) {
+        prepare();
+        int n = Math.max(1, Math.min(tm.getParallelism(), size / 256));
+        List<Runnable> s = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int from = (int) ((long) size * i / n), to = (int) ((long) size * (i + 1) / n);
+            s.add(() -> count(from, to, tolerance));
+        }
+        tm.distribute(s);
+        allocate();
+        s.clear();
+        for (int i = 0; i < n; i++) {
+            int from = (int) ((long) size * i / n), to = (int) ((long) size * (i + 1) / n);
+            s.add(() -> write(from, to));
+        }
+        tm.distribute(s);
+    }
+
+    private void prepare() {
+        if (offsets.length < size + 1) {
+            offsets = new int[type.length + 1];
+        }
+    }
+
+    private void count(int from, int to, double tolerance) {
+        for (int i = from; i < to; i++) {
+            int p = first[i];
+            int n;
+            switch (type[i]) {
+                case LINE:
+                    n = 1;
+                    break;
+                case QUAD:
+                    n = Bezier.segments(px[p], py[p], px[p + 1], py[p + 1], px[p + 2], py[p + 2], tolerance);
+                    break;
+                default:
+                    n = Bezier.segments(px[p], py[p], px[p + 1], py[p + 1],
+                            px[p + 2], py[p + 2], px[p + 3], py[p + 3], tolerance);
+            }
+            offsets[i + 1] = n + 1;
+        }
+    }
+
+    private void allocate() {
+        offsets[0] = 0;
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        if (xy.length < offsets[size] * 2) {
+            xy = new float[offsets[size] * 2];
+        }
+    }
+
+    private void write(int from, int to) {
+        for (int i = from; i < to; i++) {
+            int p = first[i];
+            int o = offsets[i] * 2;
+            int n = offsets[i + 1] - offsets[i] - 1;
+            switch (type[i]) {
+                case LINE:
+                    xy[o] = px[p];
+                    xy[o + 1] = py[p];
+                    xy[o + 2] = px[p + 1];
+                    xy[o + 3] = py[p + 1];
+                    break;
+                case QUAD:
+                    Bezier.quad(px[p], py[p], px[p + 1], py[p + 1], px[p + 2], py[p + 2], n, xy, o);
+                    break;
+                default:
+                    Bezier.cubic(px[p], py[p], px[p + 1], py[p + 1],
+                            px[p + 2], py[p + 2], px[p + 3], py[p + 3], n, xy, o);
+            }
+        }
+    }
+
+    /**
+     * Returns flattened coordinates as interleaved x, y pairs. The array may
+     * be larger than required and is reused by subsequent flattening.
+     *
+     * @return coordinate buffer
+     */
+    public float[] getCoords() {
+        return xy;
+    }
+
+    /**
+     * Returns index of first point of a segment in the coordinate buffer.
+     * getOffset(size()) returns the total number of points.
+     *
+     * @param segment segment index, 0 to size()
+     * @return point index
+     */
+    public int getOffset(int segment) {
+        return offsets[segment];
+    }
+
+    /**
+     * Returns number of flattened points of a segment.
+     *
+     * @param segment segment index
+     * @return number of points
+     */
+    public int getPointCount(int segment) {
+        return offsets[segment + 1] - offsets[segment];
+    }
+
+    /**
+     * Appends a flattened segment to a path as a new subpath.
+     *
+     * @param segment segment index
+     * @param path destination path
+     * @return path
+     */
+    public Path2D appendTo(int segment, Path2D path) {
+        int o = offsets[segment] * 2;
+        path.moveTo(xy[o], xy[o + 1]);
+        return lineTo(o + 2, offsets[segment + 1] * 2, path);
+    }
+
+    /**
+     * Appends all flattened segments to a path. Segments that start where
+     * the previous segment ends continue the same subpath.
+     *
+     * @param path destination path
+     * @return path
+     */
+    public Path2D appendTo(Path2D path) {
+        for (int i = 0; i < size; i++) {
+            int o = offsets[i] * 2;
+            if (i == 0 || xy[o] != xy[o - 2] || xy[o + 1] != xy[o - 1]) {
+                path.moveTo(xy[o], xy[o + 1]);
+            }
+            lineTo(o + 2, offsets[i + 1] * 2, path);
+        }
+        return path;
+    }
+
+    private Path2D lineTo(int from, int to, Path2D path) {
+        for (int o = from; o < to; o += 2) {
+            path.lineTo(xy[o], xy[o + 1]);
+        }
+        return path;
+    }
+
+    /**
+     * Initializes a polygon with the points of a flattened segment.
+     *
+     * @param segment segment index
+     * @param p destination polygon
+     * @return p
+     */
+    public Poly toPoly(int segment, Poly p) {
+        p.set(xy, offsets[segment] * 2, getPointCount(segment));
+        return p;
+    }
+}
@@ -86,7 +86,32 @@ public class Poly extends Polygon {
         return true;
     }
     
+    /**
+     * Initialize with points from an array of interleaved x, y coordinates.
+     * Point arrays are grown if needed.
+     *
+     * @param xy array of coordinates
+     * @param offset offset of first x coordinate
+     * @param n number of points
+     */
+    public void set(float[] xy, int offset, int n) {
+        if (xpoints.length < n) {
+            xpoints = new int[n];
+            ypoints = new int[n];
+        }
+        for (int q = 0; q < n; q++) {
+            xpoints[q] = (int) xy[offset++];
+            ypoints[q] = (int) xy[offset++];
+        }
+        npoints = n;
+        invalidate();
+    }
+
     private static boolean isVisible(Vec2 a, Vec2 b, Vec2 c) {
-        return (Vec2.cross(Vec2.sub(b, a), Vec2.sub(c, a)) < 0.0d);
+        return isVisible(a.x, a.y, b.x, b.y, c.x, c.y);
+    }
+
+    static boolean isVisible(double ax, double ay, double bx, double by, double cx, double cy) {
+        return (bx - ax) * (cy - ay) - (by - ay) * (cx - ax) < 0.0d;
     }
 }
@@ -0,0 +1,365 @@
+package com.kresdl.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Scanline rasterizer filling triangles and quads into an array of packed
+ * 0xAARRGGBB pixels. Coverage is decided by edge functions in 28.4 fixed
+ * point with a top-left fill rule, so triangles sharing an edge never touch
+ * the same pixel twice. Depth is tested against an optional depth buffer where
+ * smaller values are closer.
+ * <p>
+ * Triangles reaching outside a guard band of 2^24 pixels around the origin
+ * are clipped to it before snapping, which keeps the fixed point arithmetic
+ * from overflowing. Triangles with non-finite coordinates, such as points
+ * behind the camera divided by a zero w, are skipped; near plane culling is
+ * left to the caller, as done by {@link MeshProjector}.
+ */
+public class Rasterizer {
+
+    private static final int FLAT = 0, COLOR = 1, GRADIENT = 2;
+    private static final double GUARD = 1 << 24;
+
+    private final int[] pixels;
+    private final int width, height;
+    private float[] depth;
+    private int clipX0, clipY0, clipX1, clipY1;
+
+    // Clipped polygon as x, y and barycentric weights of points a and b
+    private double[] poly = new double[28], next = new double[28];
+
+    /**
+     * Constructs rasterizer for a framebuffer.
+     *
+     * @param pixels framebuffer, row-major with rows of width pixels
+     * @param width framebuffer width
+     * @param height framebuffer height
+     */
+    public Rasterizer(int[] pixels, int width, int height) {
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        setClip(0, 0, width, height);
+    }
+
+    /**
+     * Sets depth buffer. Depth testing is disabled if null.
+     *
+     * @param depth depth buffer of the same size as the framebuffer, or null
+     */
+    public void setDepthBuffer(float[] depth) {
+        this.depth = depth;
+    }
+
+    /**
+     * Returns depth buffer.
+     *
+     * @return depth buffer, or null
+     */
+    public float[] getDepthBuffer() {
+        return depth;
+    }
+
+    /**
+     * Restricts drawing to a rectangle. The rectangle is intersected with the
+     * framebuffer bounds.
+     *
+     * @param x0 left edge, inclusive
+     * @param y0 top edge, inclusive
+     * @param x1 right edge, exclusive
+     * @param y1 bottom edge, exclusive
+     */
+    public void setClip(int x0, int y0, int x1, int y1) {
+        clipX0 = Math.max(x0, 0);
+        clipY0 = Math.max(y0, 0);
+        clipX1 = Math.min(x1, width);
+        clipY1 = Math.min(y1, height);
+    }
+
+    /**
+     * Fills clip rectangle with a color and, if a depth buffer is set, resets
+     * its depth to positive infinity.
+     *
+     * @param argb 0xAARRGGBB
+     */
+    public void clear(int argb) {
+        for (int y = clipY0; y < clipY1; y++) {
+            int i = y * width;
+            Arrays.fill(pixels, i + clipX0, i + clipX1, argb);
+            if (depth != null) {
+                Arrays.fill(depth, i + clipX0, i + clipX1, Float.POSITIVE_INFINITY);
+            }
+        }
+    }
+
+    /**
+     * Fills a triangle with a flat color.
+     *
+     * @param ax x of point a
+     * @param ay y of point a
+     * @param az depth of point a
+     * @param bx x of point b
+     * @param by y of point b
+     * @param bz depth of point b
+     * @param cx x of point c
+     * @param cy y of point c
+     * @param cz depth of point c
+     * @param argb 0xAARRGGBB
+     */
+    public void triangle(double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, int argb) {
+        raster(ax, ay, az, bx, by, bz, cx, cy, cz, FLAT, argb, 0, 0, 0.0d, 0.0d, 0.0d, null, depth != null);
+    }
+
+    /**
+     * Fills a triangle, interpolating colors between its points.
+     *
+     * @param ax x of point a
+     * @param ay y of point a
+     * @param az depth of point a
+     * @param bx x of point b
+     * @param by y of point b
+     * @param bz depth of point b
+     * @param cx x of point c
+     * @param cy y of point c
+     * @param cz depth of point c
+     * @param argbA color of point a, 0xAARRGGBB
+     * @param argbB color of point b, 0xAARRGGBB
+     * @param argbC color of point c, 0xAARRGGBB
+     */
+    public void triangle(double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, int argbA, int argbB, int argbC) {
+        raster(ax, ay, az, bx, by, bz, cx, cy, cz, COLOR, argbA, argbB, argbC, 0.0d, 0.0d, 0.0d, null, depth != null);
+    }
+
+    /**
+     * Fills a triangle, interpolating gradient positions between its points
+     * and looking up each pixel's color in a baked gradient.
+     *
+     * @param ax x of point a
+     * @param ay y of point a
+     * @param az depth of point a
+     * @param bx x of point b
+     * @param by y of point b
+     * @param bz depth of point b
+     * @param cx x of point c
+     * @param cy y of point c
+     * @param cz depth of point c
+     * @param ga gradient position of point a
+     * @param gb gradient position of point b
+     * @param gc gradient position of point c
+     * @param g baked gradient
+     */
+    public void triangle(double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, double ga, double gb, double gc, BakedGradient g) {
+        raster(ax, ay, az, bx, by, bz, cx, cy, cz, GRADIENT, 0, 0, 0, ga, gb, gc, g, depth != null);
+    }
+
+    /**
+     * Fills a quad with a flat color.
+     *
+     * @param ax x of point a
+     * @param ay y of point a
+     * @param az depth of point a
+     * @param bx x of point b
+     * @param by y of point b
+     * @param bz depth of point b
+     * @param cx x of point c
+     * @param cy y of point c
+     * @param cz depth of point c
+     * @param dx x of point d
+     * @param dy y of point d
+     * @param dz depth of point d
+     * @param argb 0xAARRGGBB
+     */
+    public void quad(double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, double dx, double dy, double dz, int argb) {
+        triangle(ax, ay, az, bx, by, bz, cx, cy, cz, argb);
+        triangle(ax, ay, az, cx, cy, cz, dx, dy, dz, argb);
+    }
+
+    /**
+     * Fills a convex polygon with a flat color, without depth testing.
+     *
+     * @param p polygon
+     * @param argb 0xAARRGGBB
+     */
+    public void fill(Poly p, int argb) {
+        int[] x = p.xpoints, y = p.ypoints;
+        for (int q = 2; q < p.npoints; q++) {
+            raster(x[0], y[0], 0.0d, x[q - 1], y[q - 1], 0.0d, x[q], y[q], 0.0d,
+                    FLAT, argb, 0, 0, 0.0d, 0.0d, 0.0d, null, false);
+        }
+    }
+
+    /**
+     * Fills a face projected by a mesh projector with a flat color.
+     *
+     * @param mp mesh projector
+     * @param face face index
+     * @param argb 0xAARRGGBB
+     */
+    public void fill(MeshProjector mp, int face, int argb) {
+        double[] x = mp.getX(), y = mp.getY(), z = mp.getZ();
+        int[] idx = mp.getIndices();
+        int n = mp.getFaceSize();
+        int i = face * n, a = idx[i];
+        for (int q = 2; q < n; q++) {
+            int b = idx[i + q - 1], c = idx[i + q];
+            triangle(x[a], y[a], z[a], x[b], y[b], z[b], x[c], y[c], z[c], argb);
+        }
+    }
+
+    private void raster(double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, int mode, int ca, int cb, int cc,
+            double ga, double gb, double gc, BakedGradient g, boolean test) {
+        double m = Math.max(Math.max(Math.abs(ax), Math.abs(ay)), Math.max(Math.abs(bx), Math.abs(by)));
+        m = Math.max(m, Math.max(Math.abs(cx), Math.abs(cy)));
+        if (m <= GUARD) {
+            scan(ax, ay, az, bx, by, bz, cx, cy, cz, mode, ca, cb, cc, ga, gb, gc, g, test);
+            return;
+        } else if (!(m < Double.POSITIVE_INFINITY)) {
+            return;
+        }
+
+        double[] p = poly;
+        p[0] = ax;
+        p[1] = ay;
+        p[2] = 1.0d;
+        p[3] = 0.0d;
+        p[4] = bx;
+        p[5] = by;
+        p[6] = 0.0d;
+        p[7] = 1.0d;
+        p[8] = cx;
+        p[9] = cy;
+        p[10] = 0.0d;
+        p[11] = 0.0d;
+        int n = 3;
+        n = clip(n, 0, 1.0d);
+        n = clip(n, 0, -1.0d);
+        n = clip(n, 1, 1.0d);
+        n = clip(n, 1, -1.0d);
+
+        p = poly;
+        for (int q = 2; q < n; q++) {
+            int i = 0, j = (q - 1) * 4, k = q * 4;
+            double i2 = 1.0d - p[i + 2] - p[i + 3], j2 = 1.0d - p[j + 2] - p[j + 3], k2 = 1.0d - p[k + 2] - p[k + 3];
+            scan(p[i], p[i + 1], p[i + 2] * az + p[i + 3] * bz + i2 * cz,
+                    p[j], p[j + 1], p[j + 2] * az + p[j + 3] * bz + j2 * cz,
+                    p[k], p[k + 1], p[k + 2] * az + p[k + 3] * bz + k2 * cz,
+                    mode,
+                    mode == COLOR ? lerp(ca, cb, cc, p[i + 2], p[i + 3], i2) : ca,
+                    mode == COLOR ? lerp(ca, cb, cc, p[j + 2], p[j + 3], j2) : cb,
+                    mode == COLOR ? lerp(ca, cb, cc, p[k + 2], p[k + 3], k2) : cc,
+                    p[i + 2] * ga + p[i + 3] * gb + i2 * gc,
+                    p[j + 2] * ga + p[j + 3] * gb + j2 * gc,
+                    p[k + 2] * ga + p[k + 3] * gb + k2 * gc,
+                    g, test);
+        }
+    }
+
+    // Clips the polygon against sign * coordinate <= GUARD, swapping buffers
+    private int clip(int n, int axis, double sign) {
+        double[] src = poly, dst = next;
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            int a = i * 4, b = (i + 1) % n * 4;
+            double da = sign * src[a + axis] - GUARD, db = sign * src[b + axis] - GUARD;
+            if (da <= 0) {
+                System.arraycopy(src, a, dst, m, 4);
+                m += 4;
+            }
+            if ((da < 0 && db > 0) || (da > 0 && db < 0)) {
+                double t = da / (da - db);
+                for (int k = 0; k < 4; k++) {
+                    dst[m + k] = src[a + k] + t * (src[b + k] - src[a + k]);
+                }
+                m += 4;
+            }
+        }
+        poly = dst;
+        next = src;
+        return m / 4;
+    }
+
+    private void scan(double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, int mode, int ca, int cb, int cc,
+            double ga, double gb, double gc, BakedGradient g, boolean test) {
+        long x0 = Math.round(ax * 16), y0 = Math.round(ay * 16);
+        long x1 = Math.round(bx * 16), y1 = Math.round(by * 16);
+        long x2 = Math.round(cx * 16), y2 = Math.round(cy * 16);
+
+        long area = (x1 - x0) * (y2 - y0) - (y1 - y0) * (x2 - x0);
+        if (area == 0) {
+            return;
+        } else if (area < 0) {
+            scan(ax, ay, az, cx, cy, cz, bx, by, bz, mode, ca, cc, cb, ga, gc, gb, g, test);
+            return;
+        }
+
+        int minX = Math.max(clipX0, (int) ((Math.min(x0, Math.min(x1, x2)) + 7) >> 4));
+        int maxX = Math.min(clipX1 - 1, (int) ((Math.max(x0, Math.max(x1, x2)) - 8) >> 4));
+        int minY = Math.max(clipY0, (int) ((Math.min(y0, Math.min(y1, y2)) + 7) >> 4));
+        int maxY = Math.min(clipY1 - 1, (int) ((Math.max(y0, Math.max(y1, y2)) - 8) >> 4));
+        if (minX > maxX || minY > maxY) {
+            return;
+        }
+
+        // Edge functions at the center of the first pixel, biased so that
+        // pixels exactly on an edge are only covered by top and left edges
+        long px = (minX << 4) + 8, py = (minY << 4) + 8;
+        long w0 = edge(x1, y1, x2, y2, px, py) + bias(x1, y1, x2, y2);
+        long w1 = edge(x2, y2, x0, y0, px, py) + bias(x2, y2, x0, y0);
+        long w2 = edge(x0, y0, x1, y1, px, py) + bias(x0, y0, x1, y1);
+        long sx0 = (y1 - y2) << 4, sx1 = (y2 - y0) << 4, sx2 = (y0 - y1) << 4;
+        long sy0 = (x2 - x1) << 4, sy1 = (x0 - x2) << 4, sy2 = (x1 - x0) << 4;
+        long b0 = bias(x1, y1, x2, y2), b1 = bias(x2, y2, x0, y0), b2 = bias(x0, y0, x1, y1);
+        double inv = 1.0d / area;
+
+        for (int y = minY; y <= maxY; y++, w0 += sy0, w1 += sy1, w2 += sy2) {
+            long e0 = w0, e1 = w1, e2 = w2;
+            int i = y * width + minX;
+            for (int x = minX; x <= maxX; x++, i++, e0 += sx0, e1 += sx1, e2 += sx2) {
+                if ((e0 | e1 | e2) < 0) {
+                    continue;
+                }
+                double l0 = (e0 - b0) * inv, l1 = (e1 - b1) * inv, l2 = 1.0d - l0 - l1;
+                if (test) {
+                    float z = (float) (l0 * az + l1 * bz + l2 * cz);
+                    if (!(z < depth[i])) {
+                        continue;
+                    }
+                    depth[i] = z;
+                }
+                switch (mode) {
+                    case FLAT:
+                        pixels[i] = ca;
+                        break;
+                    case COLOR:
+                        pixels[i] = lerp(ca, cb, cc, l0, l1, l2);
+                        break;
+                    default:
+                        pixels[i] = g.sampleARGB(l0 * ga + l1 * gb + l2 * gc);
+                }
+            }
+        }
+    }
+
+    private static long edge(long ax, long ay, long bx, long by, long px, long py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    private static long bias(long ax, long ay, long bx, long by) {
+        return (by < ay || (by == ay && bx > ax)) ? 0 : -1;
+    }
+
+    private static int lerp(int a, int b, int c, double l0, double l1, double l2) {
+        int r = 0;
+        for (int s = 0; s < 32; s += 8) {
+            double v = l0 * ((a >>> s) & 0xff) + l1 * ((b >>> s) & 0xff) + l2 * ((c >>> s) & 0xff);
+            r |= Math.max(Math.min((int) (v + 0.5d), 255), 0) << s;
+        }
+        return r;
+    }
+}
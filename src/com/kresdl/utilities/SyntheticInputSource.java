@@ -0,0 +1,225 @@
+package com.kresdl.utilities;
+
+import java.awt.Component;
+import java.awt.Point;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseListener;
+import java.awt.event.MouseMotionListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Input source driven by code, for tests and benchmarks. Needs no display and
+ * never uses the event dispatch thread. Events are delivered on the calling
+ * thread, stamped with a simulated clock. Scheduled tasks also run on the
+ * calling thread, when setting the clock reaches their time. Component
+ * coordinates equal screen coordinates.
+ */
+public class SyntheticInputSource implements InputSource {
+
+    private final Component source = new Source();
+    private final List<MouseListener> mouse = new CopyOnWriteArrayList<>();
+    private final List<MouseMotionListener> motion = new CopyOnWriteArrayList<>();
+    private final List<Runnable> showing = new CopyOnWriteArrayList<>();
+    private final Point pointer = new Point();
+    private final List<Scheduled> scheduled = new ArrayList<>();
+    private int modifiers;
+    private long time;
+
+    @SuppressWarnings("serial")
+    private static class Source extends Component {
+    }
+
+    private static class Scheduled {
+
+        final Runnable r;
+        final long due;
+
+        Scheduled(Runnable r, long due) {
+            this.r = r;
+            this.due = due;
+        }
+    }
+
+    @Override
+    public void addMouseListener(MouseListener l) {
+        mouse.add(l);
+    }
+
+    @Override
+    public void addMouseMotionListener(MouseMotionListener l) {
+        motion.add(l);
+    }
+
+    @Override
+    public void addShowingListener(Runnable r) {
+        showing.add(r);
+    }
+
+    @Override
+    public synchronized Point getLocation() {
+        return new Point(pointer);
+    }
+
+    Component getSource() {
+        return source;
+    }
+
+    synchronized void setLocation(int x, int y) {
+        pointer.setLocation(x, y);
+    }
+
+    /**
+     * Returns simulated time in nanoseconds.
+     *
+     * @return simulated time
+     */
+    @Override
+    public synchronized long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns simulated time, at which every event is delivered.
+     *
+     * @param e event
+     * @return simulated time in nanoseconds
+     */
+    @Override
+    public long getTime(MouseEvent e) {
+        return getTime();
+    }
+
+    /**
+     * Sets simulated time, then runs scheduled tasks that have become due in
+     * order of their time.
+     *
+     * @param nanos simulated time in nanoseconds
+     */
+    public void setTime(long nanos) {
+        for (;;) {
+            Scheduled next = null;
+            synchronized (this) {
+                time = nanos;
+                for (Scheduled s : scheduled) {
+                    if (s.due - nanos <= 0 && (next == null || s.due - next.due < 0)) {
+                        next = s;
+                    }
+                }
+                if (next == null) {
+                    return;
+                }
+                scheduled.remove(next);
+            }
+            next.r.run();
+        }
+    }
+
+    @Override
+    public synchronized void schedule(Runnable r, long delay) {
+        scheduled.add(new Scheduled(r, time + Math.max(0, delay)));
+    }
+
+    /**
+     * Notifies showing listeners, as when a component is shown.
+     */
+    public void show() {
+        for (Runnable r : showing) {
+            r.run();
+        }
+    }
+
+    /**
+     * Moves pointer to given position, dragging if a button is down.
+     *
+     * @param x x on screen
+     * @param y y on screen
+     */
+    public void moveTo(int x, int y) {
+        int m;
+        synchronized (this) {
+            m = modifiers;
+        }
+        dispatch(m == 0 ? MouseEvent.MOUSE_MOVED : MouseEvent.MOUSE_DRAGGED, m, x, y, 0, MouseEvent.NOBUTTON);
+    }
+
+    /**
+     * Moves pointer by given distance, dragging if a button is down.
+     *
+     * @param dx horizontal distance
+     * @param dy vertical distance
+     */
+    public void moveBy(int dx, int dy) {
+        Point p = getLocation();
+        moveTo(p.x + dx, p.y + dy);
+    }
+
+    /**
+     * Presses a button.
+     *
+     * @param button button number, 0-2
+     */
+    public void press(int button) {
+        int m;
+        synchronized (this) {
+            m = modifiers |= InputEvent.getMaskForButton(MouseEvent.BUTTON1 + button);
+        }
+        Point p = getLocation();
+        dispatch(MouseEvent.MOUSE_PRESSED, m, p.x, p.y, 1, MouseEvent.BUTTON1 + button);
+    }
+
+    /**
+     * Releases a button.
+     *
+     * @param button button number, 0-2
+     */
+    public void release(int button) {
+        int m;
+        synchronized (this) {
+            m = modifiers &= ~InputEvent.getMaskForButton(MouseEvent.BUTTON1 + button);
+        }
+        Point p = getLocation();
+        dispatch(MouseEvent.MOUSE_RELEASED, m, p.x, p.y, 1, MouseEvent.BUTTON1 + button);
+    }
+
+    private void dispatch(int id, int modifiersEx, int x, int y, int clickCount, int button) {
+        dispatch(new MouseEvent(source, id, getTime() / 1_000_000, modifiersEx, x, y, x, y, clickCount, false, button));
+    }
+
+    /**
+     * Delivers an event to the listeners and moves the pointer to the
+     * screen position of the event.
+     *
+     * @param e press, release, move or drag event
+     */
+    public void dispatch(MouseEvent e) {
+        synchronized (this) {
+            pointer.setLocation(e.getXOnScreen(), e.getYOnScreen());
+        }
+        switch (e.getID()) {
+            case MouseEvent.MOUSE_PRESSED:
+                for (MouseListener l : mouse) {
+                    l.mousePressed(e);
+                }
+                break;
+            case MouseEvent.MOUSE_RELEASED:
+                for (MouseListener l : mouse) {
+                    l.mouseReleased(e);
+                }
+                break;
+            case MouseEvent.MOUSE_MOVED:
+                for (MouseMotionListener l : motion) {
+                    l.mouseMoved(e);
+                }
+                break;
+            case MouseEvent.MOUSE_DRAGGED:
+                for (MouseMotionListener l : motion) {
+                    l.mouseDragged(e);
+                }
+                break;
+            default:
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.kresdl.utilities;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fail-fast group of tasks. The group completes once every task has
+ * completed, or exceptionally as soon as a task fails, the group times out or
+ * is cancelled. In the latter cases the remaining tasks are cancelled and
+ * interrupted. The first failure becomes the cause; failures of tasks that
+ * were not cancelled are attached to it as suppressed exceptions.
+ */
+class TaskGroup {
+
+    private static final ScheduledThreadPoolExecutor TIMER = timer();
+
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+    private final AtomicReferenceArray<Future<?>> tasks;
+    private final AtomicInteger remaining;
+    private final AtomicReference<Throwable> first = new AtomicReference<>();
+
+    TaskGroup(int n) {
+        tasks = new AtomicReferenceArray<>(n);
+        remaining = new AtomicInteger(n);
+        if (n == 0) {
+            done.complete(null);
+        }
+        done.whenComplete((v, e) -> {
+            if (e != null) {
+                cancel();
+            }
+        });
+    }
+
+    private static ScheduledThreadPoolExecutor timer() {
+        ScheduledThreadPoolExecutor t = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread x = new Thread(r, "TaskGroup timer");
+            x.setDaemon(true);
+            return x;
+        });
+        t.setRemoveOnCancelPolicy(true);
+        return t;
+    }
+
+    Runnable wrap(int i, Runnable r) {
+        return () -> {
+            try {
+                r.run();
+            } catch (Throwable t) {
+                fail(i, t);
+                return;
+            }
+            if (remaining.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        };
+    }
+
+    void set(int i, Future<?> f) {
+        tasks.set(i, f);
+        if (done.isCompletedExceptionally()) {
+            f.cancel(true);
+        }
+    }
+
+    private void fail(int i, Throwable t) {
+        Future<?> f = tasks.get(i);
+        if (f != null && f.isCancelled()) {
+            return;
+        }
+        if (first.compareAndSet(null, t)) {
+            done.completeExceptionally(t);
+        } else if (first.get() != t) {
+            first.get().addSuppressed(t);
+        }
+    }
+
+    private void cancel() {
+        for (int i = 0; i < tasks.length(); i++) {
+            Future<?> f = tasks.get(i);
+            if (f != null) {
+                f.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Fails the group with a TimeoutException unless it completes within
+     * given time.
+     */
+    void timeout(long timeout, TimeUnit unit) {
+        if (done.isDone()) {
+            return;
+        }
+        ScheduledFuture<?> t = TIMER.schedule(() -> done.completeExceptionally(new TimeoutException()), timeout, unit);
+        done.whenComplete((v, e) -> t.cancel(false));
+    }
+
+    /**
+     * Waits for the group, cancelling it if the wait is interrupted or times
+     * out.
+     */
+    void await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            done.get(timeout, unit);
+        } catch (InterruptedException | TimeoutException e) {
+            done.cancel(true);
+            throw e;
+        }
+    }
+}
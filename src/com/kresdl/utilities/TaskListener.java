@@ -0,0 +1,40 @@
+package com.kresdl.utilities;
+
+/**
+ * Listener for task execution events of a {@link TaskManager}. Methods are
+ * called on the thread that ran the task and should return quickly.
+ */
+public interface TaskListener {
+
+    /**
+     * Called after a task has completed normally.
+     *
+     * @param waitNanos time spent queued before starting
+     * @param runNanos time spent running
+     */
+    default void completed(long waitNanos, long runNanos) {
+    }
+
+    /**
+     * Called after a task has thrown.
+     *
+     * @param t the exception thrown
+     * @param waitNanos time spent queued before starting
+     * @param runNanos time spent running
+     */
+    default void failed(Throwable t, long waitNanos, long runNanos) {
+    }
+
+    /**
+     * Called when a task has been rejected by the executor service.
+     */
+    default void rejected() {
+    }
+
+    /**
+     * Called when a task has missed its deadline before starting, and is
+     * dropped or deferred.
+     */
+    default void expired() {
+    }
+}
@@ -1,21 +1,57 @@
 package com.kresdl.utilities;
 
+import java.lang.management.ManagementFactory;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.IntToDoubleFunction;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * Task mangeger
+ * <p>
+ * CPU-bound work submitted through execute, submit, distribute, dispatch and
+ * the parallel loops runs on the backing pool. Blocking work such as file or
+ * network I/O can be handed to a separate executor through
+ * {@link #executeBlocking(Runnable)} and {@link #submitBlocking(Runnable)}, so
+ * that it never occupies pool threads.
+ * <p>
+ * Tasks passed to execute and submit are queued in priority lanes in front of
+ * the pool. Interactive tasks run before normal ones, and normal ones before
+ * background ones, except that a lane whose oldest task has waited longer than
+ * the starvation limit is served first. Tasks may carry a deadline; a task
+ * that has not started by its deadline is dropped or deferred to the
+ * background lane, depending on {@link #setExpiry(Expiry)}.
+ * <p>
+ * The number of such tasks queued or running can be bounded with
+ * {@link #setInFlightLimit(int, Overflow)}, so that producers outrunning the
+ * pool are slowed down or turned away instead of filling the heap.
  */
 public class TaskManager {
 
-    private final ExecutorService pool;
+    private final ExecutorService pool, io;
+    private final TaskMetrics metrics;
+    private final LaneScheduler lanes;
+    private boolean virtual;
 
     /**
      * Constructs TaskManager backed with given ExecutorService
@@ -23,7 +59,58 @@ public class TaskManager {
      * @param s backing executor service
      */
     public TaskManager(ExecutorService s) {
+        this(s, s);
+    }
+
+    /**
+     * Constructs TaskManager with separate executor services for CPU-bound
+     * and blocking tasks.
+     *
+     * @param s backing executor service for CPU-bound tasks
+     * @param io executor service for blocking tasks
+     */
+    public TaskManager(ExecutorService s, ExecutorService io) {
         pool = s;
+        this.io = io;
+        metrics = new TaskMetrics(() -> pool instanceof ThreadPoolExecutor
+                ? ((ThreadPoolExecutor) pool).getQueue().size()
+                : (pool instanceof ForkJoinPool ? ((ForkJoinPool) pool).getQueuedSubmissionCount() : -1));
+        lanes = new LaneScheduler(pool, metrics);
+    }
+
+    /**
+     * Constructs TaskManager with a fixed pool for CPU-bound tasks and one
+     * virtual thread per blocking task. On Java versions without virtual
+     * threads, blocking tasks run on a cached thread pool instead.
+     *
+     * @param parallelism number of threads for CPU-bound tasks
+     * @return task manager
+     */
+    public static TaskManager withVirtualThreads(int parallelism) {
+        boolean virtual = VirtualThreads.isSupported();
+        ExecutorService io = virtual ? VirtualThreads.newExecutor() : Executors.newCachedThreadPool();
+        TaskManager tm = new TaskManager(Executors.newFixedThreadPool(parallelism), io);
+        tm.virtual = virtual;
+        return tm;
+    }
+
+    /**
+     * Returns true if blocking tasks run on virtual threads.
+     *
+     * @return true if virtual threads are used
+     */
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    /**
+     * Returns executor service for blocking tasks. Same as getPool() unless
+     * a separate one was given.
+     *
+     * @return executor service
+     */
+    public ExecutorService getBlockingPool() {
+        return io;
     }
 
     /**
@@ -35,6 +122,51 @@ public class TaskManager {
         return pool;
     }
 
+    /**
+     * Returns execution metrics. Every task passing through this task manager
+     * is counted, including tasks run by the calling thread in distribute.
+     *
+     * @return metrics
+     */
+    public TaskMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers the metrics of this task manager with the platform MBean
+     * server.
+     *
+     * @param name value of the name key of the object name
+     * @return registered object name
+     * @throws JMException if registration fails
+     */
+    public ObjectName registerMBean(String name) throws JMException {
+        ObjectName n = new ObjectName("com.kresdl.utilities:type=TaskManager,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, n);
+        return n;
+    }
+
+    /**
+     * Returns the number of tasks the backing executor service can usefully
+     * run concurrently. For a thread pool this is its core size, or its
+     * maximum size if it has no core threads, but never more than the number
+     * of available processors, so that work split by this number does not
+     * flood unbounded pools such as cached thread pools. Returns the number
+     * of available processors if unknown.
+     *
+     * @return parallelism
+     */
+    public int getParallelism() {
+        if (pool instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor t = (ThreadPoolExecutor) pool;
+            int n = t.getCorePoolSize() > 0 ? t.getCorePoolSize() : t.getMaximumPoolSize();
+            return Math.max(1, Math.min(n, Runtime.getRuntime().availableProcessors()));
+        } else if (pool instanceof ForkJoinPool) {
+            return ((ForkJoinPool) pool).getParallelism();
+        }
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Executes the given command at some time in the future. The command may
      * execute in a new thread, in a pooled thread, or in the calling thread, at
@@ -43,7 +175,17 @@ public class TaskManager {
      * @param r the runnable task
      */
     public void execute(Runnable r) {
-        pool.execute(r);
+        lanes.execute(r, Priority.NORMAL);
+    }
+
+    /**
+     * Executes a task with a priority.
+     *
+     * @param r the runnable task
+     * @param p priority
+     */
+    public void execute(Runnable r, Priority p) {
+        lanes.execute(r, p);
     }
 
     /**
@@ -55,55 +197,552 @@ public class TaskManager {
      * @return a Future representing pending completion of the task
      */
     public Future<?> submit(Runnable r) {
-        return pool.submit(r);
+        return lanes.submit(r, Priority.NORMAL, 0L);
+    }
+
+    /**
+     * Submits a task with a priority.
+     *
+     * @param r the runnable task
+     * @param p priority
+     * @return a Future representing pending completion of the task
+     */
+    public Future<?> submit(Runnable r, Priority p) {
+        return lanes.submit(r, p, 0L);
+    }
+
+    /**
+     * Submits a task with a priority and a deadline. If the task has not
+     * started when the deadline passes, it is handled according to the expiry
+     * policy: dropped, cancelling the returned Future, or deferred to the
+     * background lane without a deadline.
+     *
+     * @param r the runnable task
+     * @param p priority
+     * @param timeout time from now until the deadline
+     * @param unit unit of timeout
+     * @return a Future representing pending completion of the task
+     */
+    public Future<?> submit(Runnable r, Priority p, long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        return lanes.submit(r, p, deadline == 0L ? 1L : deadline);
+    }
+
+    /**
+     * Submits a task unless the in-flight limit has been reached. Never
+     * blocks, regardless of the overflow policy.
+     *
+     * @param r the runnable task
+     * @return a Future representing pending completion of the task, or null
+     * if the limit has been reached
+     */
+    public Future<?> trySubmit(Runnable r) {
+        return lanes.trySubmit(r, Priority.NORMAL);
+    }
+
+    /**
+     * Submits a task with a priority unless the in-flight limit has been
+     * reached. Never blocks, regardless of the overflow policy.
+     *
+     * @param r the runnable task
+     * @param p priority
+     * @return a Future representing pending completion of the task, or null
+     * if the limit has been reached
+     */
+    public Future<?> trySubmit(Runnable r, Priority p) {
+        return lanes.trySubmit(r, p);
+    }
+
+    /**
+     * Limits the number of tasks submitted through execute and submit that
+     * may be queued or running at once. When the limit is reached, further
+     * submissions block, run in the calling thread or are rejected with a
+     * RejectedExecutionException, depending on overflow. Rejections are
+     * counted in the metrics. Unbounded by default.
+     *
+     * @param limit maximum number of tasks in flight, or 0 for no limit
+     * @param overflow policy when the limit is reached
+     */
+    public void setInFlightLimit(int limit, Overflow overflow) {
+        lanes.setLimit(limit, overflow);
+    }
+
+    /**
+     * Sets how long the oldest task of a lane may wait before it is served
+     * ahead of higher priority lanes. At most one such task is served per
+     * four tasks taken in priority order. Defaults to 100 milliseconds.
+     *
+     * @param limit time limit
+     * @param unit unit of limit
+     */
+    public void setStarvationLimit(long limit, TimeUnit unit) {
+        lanes.setStarvationLimit(unit.toNanos(limit));
+    }
+
+    /**
+     * Sets what happens to tasks that have not started by their deadline.
+     * Defaults to {@link Expiry#DROP}.
+     *
+     * @param expiry expiry policy
+     */
+    public void setExpiry(Expiry expiry) {
+        lanes.setExpiry(expiry);
+    }
+
+    /**
+     * Executes a task that may block, on the executor service for blocking
+     * tasks.
+     *
+     * @param r the runnable task
+     */
+    public void executeBlocking(Runnable r) {
+        execute(io, r);
+    }
+
+    /**
+     * Submits a task that may block, on the executor service for blocking
+     * tasks.
+     *
+     * @param r the runnable task
+     * @return a Future representing pending completion of the task
+     */
+    public Future<?> submitBlocking(Runnable r) {
+        return submit(io, r);
+    }
+
+    private void execute(ExecutorService s, Runnable r) {
+        try {
+            s.execute(metrics.wrap(r));
+        } catch (RejectedExecutionException e) {
+            metrics.rejected();
+            throw e;
+        }
+    }
+
+    private Future<?> submit(ExecutorService s, Runnable r) {
+        try {
+            return s.submit(metrics.wrap(r));
+        } catch (RejectedExecutionException e) {
+            metrics.rejected();
+            throw e;
+        }
     }
 
     /**
      * Submits tasks 2 through s.length for execution and runs task 1 in the
-     * current thread, then blocks until completion of submitted tasks.
+     * current thread, then blocks until completion of submitted tasks. If any
+     * task fails, the first failure is rethrown once all tasks are done, with
+     * later failures suppressed by it. Checked exceptions are wrapped in a
+     * RuntimeException.
      *
      * @param s a collection of tasks
+     * @throws CancellationException if interrupted while waiting, in which
+     * case the remaining tasks are cancelled and the interrupt status is set
+     * @see #dispatchAndAwait(Collection, long, TimeUnit)
      */
     public void distribute(Collection<Runnable> s) {
         Iterator<Runnable> t = s.iterator();
         Runnable m = t.next();
         Set<Future<?>> f = new HashSet<>();
         while (t.hasNext()) {
-            f.add(pool.submit(t.next()));
+            f.add(submit(pool, t.next()));
         }
-        m.run();
+        Throwable failure = null;
+        try {
+            metrics.run(m);
+        } catch (Throwable e) {
+            failure = e;
+        }
+        long start = System.nanoTime();
         try {
             for (Future<?> x : f) {
-                x.get();
+                try {
+                    x.get();
+                } catch (ExecutionException e) {
+                    failure = suppress(failure, e.getCause());
+                }
             }
         } catch (InterruptedException e) {
-            e.printStackTrace();
+            for (Future<?> x : f) {
+                x.cancel(true);
+            }
             Thread.currentThread().interrupt();
-        } catch (ExecutionException e) {
-            e.printStackTrace();
+            throw new CancellationException("Interrupted");
+        } finally {
+            metrics.distributeWait(System.nanoTime() - start);
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure != null) {
+            throw new RuntimeException(failure);
         }
     }
 
+    private static Throwable suppress(Throwable primary, Throwable t) {
+        if (primary == null) {
+            return t;
+        } else if (primary != t) {
+            primary.addSuppressed(t);
+        }
+        return primary;
+    }
+
     /**
      * Submits tasks for execution and returns a CompletableFuture which
      * resolves when all tasks has completed.
      *
      * @param s a collection of tasks
      * @return completable future
+     * @see #dispatch(Collection, long, TimeUnit)
      */
     public CompletableFuture<Void> dispatch(Collection<Runnable> s) {
         CompletableFuture<?>[] f = new CompletableFuture[s.size()];
         int i = 0;
         for (Runnable r : s) {
-            f[i++] = CompletableFuture.runAsync(r, pool);
+            f[i++] = CompletableFuture.runAsync(metrics.wrap(r), pool);
         }
         return CompletableFuture.allOf(f);
     }
 
+    /**
+     * Submits tasks for execution and blocks until all of them have
+     * completed. Unlike {@link #distribute(Collection)}, no task runs in the
+     * calling thread. As soon as a task fails, the wait times out or the calling
+     * thread is interrupted, the remaining tasks are cancelled and
+     * interrupted and this method returns without waiting for them to wind
+     * down.
+     *
+     * @param s a collection of tasks
+     * @param timeout maximum time to wait
+     * @param unit time unit of timeout
+     * @throws InterruptedException if interrupted while waiting
+     * @throws ExecutionException if a task failed, with the first failure as
+     * cause and later failures suppressed by it
+     * @throws TimeoutException if the wait timed out
+     */
+    public void dispatchAndAwait(Collection<Runnable> s, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        TaskGroup g = group(s);
+        long start = System.nanoTime();
+        try {
+            g.await(timeout, unit);
+        } finally {
+            metrics.distributeWait(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Submits tasks for execution and returns a CompletableFuture which
+     * resolves when all tasks have completed. The future completes
+     * exceptionally as soon as a task fails, with the first failure as cause
+     * and later failures suppressed by it, or with a TimeoutException when the
+     * timeout elapses. Remaining tasks are then cancelled and interrupted, as
+     * they are when the returned future is cancelled.
+     *
+     * @param s a collection of tasks
+     * @param timeout maximum time until completion
+     * @param unit time unit of timeout
+     * @return completable future
+     */
+    public CompletableFuture<Void> dispatch(Collection<Runnable> s, long timeout, TimeUnit unit) {
+        TaskGroup g = group(s);
+        g.timeout(timeout, unit);
+        return g.done;
+    }
+
+    /**
+     * Submits tasks as a batch with an automatic chunk size. See
+     * {@link #batch(Collection, int)}.
+     *
+     * @param s a collection of tasks
+     * @return batch
+     */
+    public Batch batch(Collection<? extends Runnable> s) {
+        return batch(s, 0);
+    }
+
+    /**
+     * Submits tasks as a batch. The tasks are run in chunks by at most one
+     * worker per pool thread, without a future per task, which suits large
+     * numbers of small tasks.
+     *
+     * @param s a collection of tasks
+     * @param chunk tasks per chunk, or 0 to choose automatically
+     * @return batch
+     */
+    public Batch batch(Collection<? extends Runnable> s, int chunk) {
+        Runnable[] t = s.toArray(new Runnable[0]);
+        if (chunk < 1) {
+            chunk = defaultGrain(0, t.length);
+        }
+        int n = workers(0, t.length, chunk);
+        Batch b = new Batch(t, chunk, n);
+        for (int i = 0; i < n; i++) {
+            try {
+                submit(pool, b::work);
+            } catch (RejectedExecutionException e) {
+                b.cancel(false);
+                for (; i < n; i++) {
+                    b.abandon();
+                }
+                throw e;
+            }
+        }
+        return b;
+    }
+
+    private TaskGroup group(Collection<Runnable> s) {
+        TaskGroup g = new TaskGroup(s.size());
+        int i = 0;
+        for (Runnable r : s) {
+            try {
+                g.set(i, pool.submit(g.wrap(i, metrics.wrap(r))));
+            } catch (RejectedExecutionException e) {
+                metrics.rejected();
+                g.done.cancel(true);
+                throw e;
+            }
+            i++;
+        }
+        return g;
+    }
+
+    /**
+     * Runs body for every index from from, inclusive, to to, exclusive. See
+     * {@link #parallelFor(int, int, int, IntConsumer)}.
+     *
+     * @param from first index
+     * @param to end index, exclusive
+     * @param body loop body
+     */
+    public void parallelFor(int from, int to, IntConsumer body) {
+        parallelFor(from, to, defaultGrain(from, to), body);
+    }
+
+    /**
+     * Runs body for every index from from, inclusive, to to, exclusive. The
+     * range is split into chunks claimed on demand by pool workers and the
+     * calling thread. Chunks shrink from a share of the remaining range down
+     * to the grain size, so uneven per-index costs even out. Blocks until all
+     * indices are done. The first exception thrown by body stops further
+     * chunks from being claimed and is rethrown here.
+     *
+     * @param from first index
+     * @param to end index, exclusive
+     * @param grain smallest number of indices per chunk
+     * @param body loop body
+     */
+    public void parallelFor(int from, int to, int grain, IntConsumer body) {
+        parallelRange(from, to, grain, r -> {
+            long c;
+            while ((c = r.claim()) != -1L) {
+                int s = ParallelRange.start(c), e = ParallelRange.end(c);
+                try {
+                    for (int i = s; i < e; i++) {
+                        body.accept(i);
+                    }
+                } catch (Throwable t) {
+                    r.fail(t, e - s);
+                    return;
+                }
+                r.complete(e - s);
+            }
+        });
+    }
+
+    /**
+     * Reduces a range in parallel. Each worker folds the chunks it claims into
+     * a partial result with body and combiner, and the partial results are
+     * then combined in the calling thread. Since chunk assignment varies,
+     * combiner must be associative and commutative.
+     *
+     * @param <T> result type
+     * @param from first index
+     * @param to end index, exclusive
+     * @param grain smallest number of indices per chunk
+     * @param identity identity value of combiner
+     * @param body computes the result of a sub-range
+     * @param combiner combines two results
+     * @return result
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T parallelReduce(int from, int to, int grain, T identity, RangeFunction<T> body, BinaryOperator<T> combiner) {
+        int workers = workers(from, to, grain);
+        Object[] partial = new Object[workers + 1];
+        AtomicInteger slot = new AtomicInteger();
+        parallelRange(from, to, grain, r -> {
+            T acc = identity;
+            int k = -1;
+            long c;
+            while ((c = r.claim()) != -1L) {
+                int s = ParallelRange.start(c), e = ParallelRange.end(c);
+                try {
+                    acc = combiner.apply(acc, body.apply(s, e));
+                } catch (Throwable t) {
+                    r.fail(t, e - s);
+                    return;
+                }
+                // Publish before completing the chunk, since completing the
+                // last one releases the caller
+                if (k < 0) {
+                    k = slot.getAndIncrement();
+                }
+                partial[k] = acc;
+                r.complete(e - s);
+            }
+        });
+        T result = identity;
+        for (int i = 0; i < slot.get(); i++) {
+            result = combiner.apply(result, (T) partial[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Maps every index of a range to a double and reduces the values in
+     * parallel. See
+     * {@link #parallelReduce(int, int, int, Object, RangeFunction, BinaryOperator)}.
+     *
+     * @param from first index
+     * @param to end index, exclusive
+     * @param grain smallest number of indices per chunk
+     * @param identity identity value of op
+     * @param map maps an index to a value
+     * @param op associative and commutative operator
+     * @return result
+     */
+    public double parallelReduce(int from, int to, int grain, double identity, IntToDoubleFunction map, DoubleBinaryOperator op) {
+        int workers = workers(from, to, grain);
+        double[] partial = new double[workers + 1];
+        AtomicInteger slot = new AtomicInteger();
+        parallelRange(from, to, grain, r -> {
+            double acc = identity;
+            int k = -1;
+            long c;
+            while ((c = r.claim()) != -1L) {
+                int s = ParallelRange.start(c), e = ParallelRange.end(c);
+                try {
+                    for (int i = s; i < e; i++) {
+                        acc = op.applyAsDouble(acc, map.applyAsDouble(i));
+                    }
+                } catch (Throwable t) {
+                    r.fail(t, e - s);
+                    return;
+                }
+                if (k < 0) {
+                    k = slot.getAndIncrement();
+                }
+                partial[k] = acc;
+                r.complete(e - s);
+            }
+        });
+        double result = identity;
+        for (int i = 0; i < slot.get(); i++) {
+            result = op.applyAsDouble(result, partial[i]);
+        }
+        return result;
+    }
+
+    private int defaultGrain(int from, int to) {
+        return Math.max(1, (int) (((long) to - from) / (64L * getParallelism())));
+    }
+
+    private int workers(int from, int to, int grain) {
+        long chunks = (((long) to - from) + Math.max(1, grain) - 1) / Math.max(1, grain);
+        return (int) Math.max(0, Math.min(getParallelism(), chunks));
+    }
+
+    private void parallelRange(int from, int to, int grain, Consumer<ParallelRange> worker) {
+        int n = workers(from, to, grain);
+        ParallelRange r = new ParallelRange(from, to, grain, n + 1);
+        Future<?>[] f = new Future<?>[n];
+        for (int i = 0; i < n; i++) {
+            f[i] = submit(pool, () -> worker.accept(r));
+        }
+        worker.accept(r);
+        try {
+            r.await();
+        } catch (InterruptedException e) {
+            r.abort();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted");
+        } finally {
+            for (Future<?> x : f) {
+                x.cancel(false);
+            }
+        }
+        r.rethrow();
+    }
+
+    /**
+     * Task priorities, most urgent first.
+     */
+    public enum Priority {
+        INTERACTIVE, NORMAL, BACKGROUND
+    }
+
+    /**
+     * Policies for tasks that have not started by their deadline.
+     */
+    public enum Expiry {
+        /**
+         * Cancel the task.
+         */
+        DROP,
+        /**
+         * Move the task to the background lane without a deadline.
+         */
+        DEFER
+    }
+
+    /**
+     * Policies for submissions beyond the in-flight limit.
+     */
+    public enum Overflow {
+        /**
+         * Block the submitting thread until a task completes.
+         */
+        BLOCK,
+        /**
+         * Run the task in the submitting thread.
+         */
+        CALLER_RUNS,
+        /**
+         * Throw a RejectedExecutionException.
+         */
+        REJECT
+    }
+
+    /**
+     * Function of an index range.
+     *
+     * @param <T> result type
+     */
+    @FunctionalInterface
+    public interface RangeFunction<T> {
+
+        /**
+         * Applies function to a range.
+         *
+         * @param from first index
+         * @param to end index, exclusive
+         * @return result
+         */
+        T apply(int from, int to);
+    }
+
     /**
      * Shut down
      */
     public void shutdown() {
+        shutdown(pool);
+        if (io != pool) {
+            shutdown(io);
+        }
+    }
+
+    private static void shutdown(ExecutorService pool) {
         pool.shutdown();
         try {
             if (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
@@ -0,0 +1,285 @@
+package com.kresdl.utilities;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Execution counters of a {@link TaskManager}. All counters are updated
+ * without locking and are cheap enough to leave enabled.
+ */
+public class TaskMetrics implements TaskMetricsMXBean {
+
+    private final LongAdder submitted = new LongAdder(),
+            completed = new LongAdder(),
+            failed = new LongAdder(),
+            rejected = new LongAdder(),
+            expired = new LongAdder(),
+            distributeWait = new LongAdder();
+    private final AtomicInteger active = new AtomicInteger();
+    private final Histogram queueWait = new Histogram(),
+            runTime = new Histogram();
+    private final List<TaskListener> listeners = new CopyOnWriteArrayList<>();
+    private final IntSupplier queueSize;
+
+    TaskMetrics(IntSupplier queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    /**
+     * Adds a listener.
+     *
+     * @param l listener
+     */
+    public void addListener(TaskListener l) {
+        listeners.add(l);
+    }
+
+    /**
+     * Removes a listener.
+     *
+     * @param l listener
+     */
+    public void removeListener(TaskListener l) {
+        listeners.remove(l);
+    }
+
+    /**
+     * Wraps a task so that its execution is recorded, and counts it as
+     * submitted.
+     */
+    Runnable wrap(Runnable r) {
+        submitted.increment();
+        long queued = System.nanoTime();
+        return () -> run(r, queued);
+    }
+
+    /**
+     * Runs a task in the calling thread, recording it as submitted and
+     * executed without queueing.
+     */
+    void run(Runnable r) {
+        submitted.increment();
+        run(r, System.nanoTime());
+    }
+
+    private void run(Runnable r, long queued) {
+        long start = System.nanoTime();
+        long wait = start - queued;
+        active.incrementAndGet();
+        try {
+            r.run();
+        } catch (Throwable t) {
+            long time = System.nanoTime() - start;
+            record(wait, time);
+            failed.increment();
+            for (TaskListener l : listeners) {
+                l.failed(t, wait, time);
+            }
+            throw t;
+        } finally {
+            active.decrementAndGet();
+        }
+        long time = System.nanoTime() - start;
+        record(wait, time);
+        completed.increment();
+        for (TaskListener l : listeners) {
+            l.completed(wait, time);
+        }
+    }
+
+    private void record(long wait, long time) {
+        queueWait.add(wait);
+        runTime.add(time);
+    }
+
+    /**
+     * Counts a rejected task that was already counted as submitted.
+     */
+    void rejected() {
+        submitted.decrement();
+        rejectedBeforeSubmit();
+    }
+
+    /**
+     * Counts a rejected task that was never counted as submitted.
+     */
+    void rejectedBeforeSubmit() {
+        rejected.increment();
+        for (TaskListener l : listeners) {
+            l.rejected();
+        }
+    }
+
+    void expired() {
+        expired.increment();
+        for (TaskListener l : listeners) {
+            l.expired();
+        }
+    }
+
+    void distributeWait(long nanos) {
+        distributeWait.add(nanos);
+    }
+
+    /**
+     * Returns histogram of time tasks spent queued.
+     *
+     * @return histogram in nanoseconds
+     */
+    public Histogram getQueueWaitHistogram() {
+        return queueWait;
+    }
+
+    /**
+     * Returns histogram of time tasks spent running.
+     *
+     * @return histogram in nanoseconds
+     */
+    public Histogram getRunTimeHistogram() {
+        return runTime;
+    }
+
+    @Override
+    public long getSubmittedCount() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    @Override
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    @Override
+    public int getQueueSize() {
+        return queueSize.getAsInt();
+    }
+
+    @Override
+    public double getMeanQueueWait() {
+        return queueWait.getMean();
+    }
+
+    @Override
+    public double getMeanRunTime() {
+        return runTime.getMean();
+    }
+
+    @Override
+    public long getQueueWait99() {
+        return queueWait.getPercentile(0.99d);
+    }
+
+    @Override
+    public long getRunTime99() {
+        return runTime.getPercentile(0.99d);
+    }
+
+    @Override
+    public long getDistributeWait() {
+        return distributeWait.sum();
+    }
+
+    /**
+     * Histogram of non-negative values in power-of-two buckets. Bucket i
+     * counts values v with 2^(i-1) &lt;= v &lt; 2^i; bucket 0 counts zeros.
+     */
+    public static class Histogram {
+
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder sum = new LongAdder();
+
+        Histogram() {
+            for (int i = 0; i < 64; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void add(long v) {
+            v = Math.max(v, 0);
+            buckets[64 - Long.numberOfLeadingZeros(v)].increment();
+            sum.add(v);
+        }
+
+        /**
+         * Returns number of recorded values per bucket.
+         *
+         * @return array of 64 counts
+         */
+        public long[] getBuckets() {
+            long[] b = new long[64];
+            for (int i = 0; i < 64; i++) {
+                b[i] = buckets[i].sum();
+            }
+            return b;
+        }
+
+        /**
+         * Returns number of recorded values.
+         *
+         * @return count
+         */
+        public long getCount() {
+            long n = 0;
+            for (LongAdder b : buckets) {
+                n += b.sum();
+            }
+            return n;
+        }
+
+        /**
+         * Returns mean of recorded values.
+         *
+         * @return mean, or 0 if empty
+         */
+        public double getMean() {
+            long n = getCount();
+            return n == 0 ? 0.0d : (double) sum.sum() / n;
+        }
+
+        /**
+         * Returns upper bound of the bucket containing a percentile.
+         *
+         * @param p percentile, 0-1
+         * @return approximate percentile value
+         */
+        public long getPercentile(double p) {
+            long[] b = getBuckets();
+            long n = 0;
+            for (long c : b) {
+                n += c;
+            }
+            long target = (long) Math.ceil(p * n);
+            long acc = 0;
+            for (int i = 0; i < 64; i++) {
+                acc += b[i];
+                if (acc >= target && acc > 0) {
+                    return i == 0 ? 0 : (i == 63 ? Long.MAX_VALUE : (1L << i) - 1);
+                }
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.kresdl.utilities;
+
+/**
+ * Management interface of {@link TaskMetrics}.
+ */
+public interface TaskMetricsMXBean {
+
+    /**
+     * @return number of tasks submitted
+     */
+    long getSubmittedCount();
+
+    /**
+     * @return number of tasks completed normally
+     */
+    long getCompletedCount();
+
+    /**
+     * @return number of tasks that threw
+     */
+    long getFailedCount();
+
+    /**
+     * @return number of tasks rejected
+     */
+    long getRejectedCount();
+
+    /**
+     * @return number of tasks that missed their deadline before starting
+     */
+    long getExpiredCount();
+
+    /**
+     * @return number of tasks currently running
+     */
+    int getActiveCount();
+
+    /**
+     * @return number of tasks waiting in the pool's queue, or -1 if unknown
+     */
+    int getQueueSize();
+
+    /**
+     * @return mean time tasks spent queued, in nanoseconds
+     */
+    double getMeanQueueWait();
+
+    /**
+     * @return mean time tasks spent running, in nanoseconds
+     */
+    double getMeanRunTime();
+
+    /**
+     * @return approximate 99th percentile of queue wait, in nanoseconds
+     */
+    long getQueueWait99();
+
+    /**
+     * @return approximate 99th percentile of run time, in nanoseconds
+     */
+    long getRunTime99();
+
+    /**
+     * @return total time callers spent waiting in distribute and
+     * dispatchAndAwait, in nanoseconds
+     */
+    long getDistributeWait();
+}
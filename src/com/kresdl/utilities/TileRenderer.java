@@ -0,0 +1,294 @@
+package com.kresdl.utilities;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Binned tile renderer. Triangles are sorted into square screen tiles, then
+ * the tiles are rasterized in parallel on a task manager. Each tile is owned by
+ * exactly one worker at a time, so no locking is needed.
+ * <p>
+ * In deterministic mode, every tile draws its triangles in submission order
+ * and the output does not depend on the number of threads. Otherwise binning
+ * uses shared atomic counters, which is cheaper but lets the order of
+ * triangles within a tile vary between runs.
+ */
+public class TileRenderer {
+
+    private final TaskManager tm;
+    private final int tileSize;
+    private boolean deterministic = true;
+
+    private double[] v = new double[9 * 64];
+    private int[] color = new int[64];
+    private int size;
+
+    private int[] binStart = new int[1], bins = new int[0];
+    private int tilesX, tilesY;
+
+    private long binTime, rasterTime, frames;
+
+    /**
+     * Constructs renderer.
+     *
+     * @param tm task manager
+     * @param tileSize tile width and height in pixels
+     */
+    public TileRenderer(TaskManager tm, int tileSize) {
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("Tile size < 1");
+        }
+        this.tm = tm;
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Sets deterministic mode, enabled by default.
+     *
+     * @param deterministic true to draw triangles in submission order
+     */
+    public void setDeterministic(boolean deterministic) {
+        this.deterministic = deterministic;
+    }
+
+    /**
+     * Removes all triangles.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Returns number of triangles.
+     *
+     * @return number of triangles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds a triangle with a flat color.
+     *
+     * @param ax x of point a
+     * @param ay y of point a
+     * @param az depth of point a
+     * @param bx x of point b
+     * @param by y of point b
+     * @param bz depth of point b
+     * @param cx x of point c
+     * @param cy y of point c
+     * @param cz depth of point c
+     * @param argb 0xAARRGGBB
+     */
+    public void add(double ax, double ay, double az, double bx, double by, double bz,
+            double cx, double cy, double cz, int argb) {
+        if (size == color.length) {
+            color = Arrays.copyOf(color, size * 2);
+            v = Arrays.copyOf(v, size * 18);
+        }
+        int i = size * 9;
+        v[i] = ax;
+        v[i + 1] = ay;
+        v[i + 2] = az;
+        v[i + 3] = bx;
+        v[i + 4] = by;
+        v[i + 5] = bz;
+        v[i + 6] = cx;
+        v[i + 7] = cy;
+        v[i + 8] = cz;
+        color[size++] = argb;
+    }
+
+    /**
+     * Adds the visible faces of a mesh projector, split into triangle fans.
+     *
+     * @param mp mesh projector
+     * @param faceColors color per face, 0xAARRGGBB
+     */
+    public void add(MeshProjector mp, int[] faceColors) {
+        double[] x = mp.getX(), y = mp.getY(), z = mp.getZ();
+        int[] idx = mp.getIndices(), faces = mp.getVisibleFaces();
+        int n = mp.getFaceSize();
+        for (int f = 0; f < mp.getVisibleCount(); f++) {
+            int i = faces[f] * n, a = idx[i];
+            for (int q = 2; q < n; q++) {
+                int b = idx[i + q - 1], c = idx[i + q];
+                add(x[a], y[a], z[a], x[b], y[b], z[b], x[c], y[c], z[c], faceColors[faces[f]]);
+            }
+        }
+    }
+
+    /**
+     * Clears and renders all triangles into a framebuffer.
+     *
+     * @param pixels framebuffer, row-major with rows of width pixels
+     * @param depth depth buffer of the same size, or null to disable depth
+     * testing
+     * @param width framebuffer width
+     * @param height framebuffer height
+     * @param background 0xAARRGGBB clear color
+     */
+    public void render(int[] pixels, float[] depth, int width, int height, int background) {
+        long t0 = System.nanoTime();
+        tilesX = (width + tileSize - 1) / tileSize;
+        tilesY = (height + tileSize - 1) / tileSize;
+        int tiles = tilesX * tilesY;
+        if (tiles == 0) {
+            binTime = rasterTime = 0;
+            frames++;
+            return;
+        }
+        int workers = Math.max(1, Math.min(tm.getParallelism(), size / 1024));
+        if (binStart.length < tiles + 1) {
+            binStart = new int[tiles + 1];
+        }
+        if (deterministic) {
+            binOrdered(workers, tiles);
+        } else {
+            binShared(workers, tiles);
+        }
+        long t1 = System.nanoTime();
+
+        AtomicInteger next = new AtomicInteger();
+        run(Math.min(tiles, tm.getParallelism()), w -> {
+            Rasterizer r = new Rasterizer(pixels, width, height);
+            r.setDepthBuffer(depth);
+            int t;
+            while ((t = next.getAndIncrement()) < tiles) {
+                int x = (t % tilesX) * tileSize, y = (t / tilesX) * tileSize;
+                r.setClip(x, y, x + tileSize, y + tileSize);
+                r.clear(background);
+                for (int k = binStart[t]; k < binStart[t + 1]; k++) {
+                    int i = bins[k] * 9;
+                    r.triangle(v[i], v[i + 1], v[i + 2], v[i + 3], v[i + 4], v[i + 5],
+                            v[i + 6], v[i + 7], v[i + 8], color[bins[k]]);
+                }
+            }
+        });
+        long t2 = System.nanoTime();
+        binTime = t1 - t0;
+        rasterTime = t2 - t1;
+        frames++;
+    }
+
+    private void binOrdered(int workers, int tiles) {
+        int[][] count = new int[workers][tiles];
+        run(workers, w -> {
+            int[] c = count[w];
+            forEachTile(w, workers, (i, t) -> c[t]++);
+        });
+        int total = 0;
+        for (int t = 0; t < tiles; t++) {
+            binStart[t] = total;
+            for (int[] c : count) {
+                int n = c[t];
+                c[t] = total;
+                total += n;
+            }
+        }
+        binStart[tiles] = total;
+        allocate(total);
+        run(workers, w -> {
+            int[] c = count[w];
+            forEachTile(w, workers, (i, t) -> bins[c[t]++] = i);
+        });
+    }
+
+    private void binShared(int workers, int tiles) {
+        AtomicIntegerArray count = new AtomicIntegerArray(tiles);
+        run(workers, w -> forEachTile(w, workers, (i, t) -> count.incrementAndGet(t)));
+        int total = 0;
+        for (int t = 0; t < tiles; t++) {
+            binStart[t] = total;
+            total += count.get(t);
+            count.set(t, binStart[t]);
+        }
+        binStart[tiles] = total;
+        allocate(total);
+        run(workers, w -> forEachTile(w, workers, (i, t) -> bins[count.getAndIncrement(t)] = i));
+    }
+
+    private void allocate(int total) {
+        if (bins.length < total) {
+            bins = new int[total + total / 4];
+        }
+    }
+
+    private void forEachTile(int w, int workers, Bin b) {
+        int from = (int) ((long) size * w / workers), to = (int) ((long) size * (w + 1) / workers);
+        int maxX = tilesX - 1, maxY = tilesY - 1;
+        for (int i = from; i < to; i++) {
+            int j = i * 9;
+            double x0 = Math.min(v[j], Math.min(v[j + 3], v[j + 6]));
+            double x1 = Math.max(v[j], Math.max(v[j + 3], v[j + 6]));
+            double y0 = Math.min(v[j + 1], Math.min(v[j + 4], v[j + 7]));
+            double y1 = Math.max(v[j + 1], Math.max(v[j + 4], v[j + 7]));
+            if (!(x1 >= 0.0d && y1 >= 0.0d && x0 < tilesX * tileSize && y0 < tilesY * tileSize)) {
+                continue;
+            }
+            int tx0 = Math.max(0, (int) (x0 / tileSize)), tx1 = Math.min(maxX, (int) (x1 / tileSize));
+            int ty0 = Math.max(0, (int) (y0 / tileSize)), ty1 = Math.min(maxY, (int) (y1 / tileSize));
+            for (int ty = ty0; ty <= ty1; ty++) {
+                for (int tx = tx0; tx <= tx1; tx++) {
+                    b.add(i, ty * tilesX + tx);
+                }
+            }
+        }
+    }
+
+    private void run(int n, IntConsumer worker) {
+        List<Runnable> s = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            int w = i;
+            s.add(() -> worker.accept(w));
+        }
+        tm.distribute(s);
+    }
+
+    /**
+     * Returns time spent binning during the last frame.
+     *
+     * @return nanoseconds
+     */
+    public long getBinTime() {
+        return binTime;
+    }
+
+    /**
+     * Returns time spent rasterizing during the last frame.
+     *
+     * @return nanoseconds
+     */
+    public long getRasterTime() {
+        return rasterTime;
+    }
+
+    /**
+     * Returns number of triangle-tile pairs binned during the last frame.
+     *
+     * @return number of binned triangle references
+     */
+    public int getBinnedCount() {
+        return binStart[tilesX * tilesY];
+    }
+
+    /**
+     * Returns number of frames rendered.
+     *
+     * @return number of frames
+     */
+    public long getFrameCount() {
+        return frames;
+    }
+
+    @FunctionalInterface
+    private interface Bin {
+
+        void add(int triangle, int tile);
+    }
+}
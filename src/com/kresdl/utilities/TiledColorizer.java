@@ -0,0 +1,159 @@
+package com.kresdl.utilities;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Colorizes scalar fields into images in parallel, tile by tile. Every pixel
+ * is produced by {@link BakedGradient#colorize(double[], int, int[], int, int)},
+ * so the result is identical to a single-threaded pass.
+ */
+public class TiledColorizer {
+
+    private final TaskManager tm;
+    private int tileWidth, tileHeight;
+
+    /**
+     * Constructs colorizer with square tiles.
+     *
+     * @param tm task manager to distribute tiles on
+     * @param tileSize tile width and height in pixels
+     */
+    public TiledColorizer(TaskManager tm, int tileSize) {
+        this.tm = tm;
+        setTileSize(tileSize, tileSize);
+    }
+
+    /**
+     * Sets tile size.
+     *
+     * @param width tile width in pixels
+     * @param height tile height in pixels
+     */
+    public void setTileSize(int width, int height) {
+        if (width < 1 || height < 1) {
+            throw new IllegalArgumentException("Tile size < 1");
+        }
+        tileWidth = width;
+        tileHeight = height;
+    }
+
+    /**
+     * Colorizes a field into an image of the same size. Images of type
+     * TYPE_INT_ARGB and TYPE_INT_RGB are written directly into their backing
+     * array, other types through setRGB in bands of whole rows, since packed
+     * rasters may share bytes between neighbouring pixels.
+     *
+     * @param field row-major field values of width img.getWidth()
+     * @param g gradient
+     * @param img destination image
+     * @return img
+     */
+    public BufferedImage colorize(double[] field, Gradient g, BufferedImage img) {
+        return colorize(field, g.bake(Gradient.DEFAULT_SAMPLES), img);
+    }
+
+    /**
+     * Colorizes a field into an image of the same size. Images of type
+     * TYPE_INT_ARGB and TYPE_INT_RGB are written directly into their backing
+     * array, other types through setRGB in bands of whole rows, since packed
+     * rasters may share bytes between neighbouring pixels.
+     *
+     * @param field row-major field values of width img.getWidth()
+     * @param g baked gradient
+     * @param img destination image
+     * @return img
+     */
+    public BufferedImage colorize(double[] field, BakedGradient g, BufferedImage img) {
+        int w = img.getWidth();
+        int h = img.getHeight();
+        int type = img.getType();
+        WritableRaster r = img.getRaster();
+        if ((type == BufferedImage.TYPE_INT_ARGB || type == BufferedImage.TYPE_INT_RGB)
+                && r.getDataBuffer() instanceof DataBufferInt
+                && r.getSampleModel() instanceof SinglePixelPackedSampleModel) {
+            DataBufferInt db = (DataBufferInt) r.getDataBuffer();
+            int stride = ((SinglePixelPackedSampleModel) r.getSampleModel()).getScanlineStride();
+            int off = db.getOffset() - r.getSampleModelTranslateX() - r.getSampleModelTranslateY() * stride;
+            colorize(field, w, h, g, db.getData(), off, stride);
+        } else {
+            run(w, h, w, tileHeight, (x, y, tw, row) -> {
+                g.colorize(field, y * w + x, row, 0, tw);
+                img.setRGB(x, y, tw, 1, row, 0, tw);
+            });
+        }
+        return img;
+    }
+
+    /**
+     * Colorizes a field into an array of packed 0xAARRGGBB pixels.
+     *
+     * @param field row-major field values
+     * @param width field width
+     * @param height field height
+     * @param g baked gradient
+     * @param dst destination pixels
+     * @param dstOff offset of first pixel in destination array
+     * @param scanline distance between rows in destination array
+     */
+    public void colorize(double[] field, int width, int height, BakedGradient g, int[] dst, int dstOff, int scanline) {
+        run(width, height, tileWidth, tileHeight,
+                (x, y, tw, row) -> g.colorize(field, y * width + x, dst, dstOff + y * scanline + x, tw));
+    }
+
+    /**
+     * Colorizes a field into an array of packed 0xAARRGGBB pixels.
+     *
+     * @param field row-major field values
+     * @param width field width
+     * @param height field height
+     * @param g baked gradient
+     * @param dst destination pixels
+     * @param dstOff offset of first pixel in destination array
+     * @param scanline distance between rows in destination array
+     */
+    public void colorize(float[] field, int width, int height, BakedGradient g, int[] dst, int dstOff, int scanline) {
+        run(width, height, tileWidth, tileHeight,
+                (x, y, tw, row) -> g.colorize(field, y * width + x, dst, dstOff + y * scanline + x, tw));
+    }
+
+    private void run(int width, int height, int cellWidth, int cellHeight, Row row) {
+        int cols = (width + cellWidth - 1) / cellWidth;
+        int rows = (height + cellHeight - 1) / cellHeight;
+        int tiles = cols * rows;
+        if (tiles == 0) {
+            return;
+        }
+        AtomicInteger next = new AtomicInteger();
+        Runnable worker = () -> {
+            int[] buf = new int[cellWidth];
+            int t;
+            while ((t = next.getAndIncrement()) < tiles) {
+                int x = (t % cols) * cellWidth;
+                int y = (t / cols) * cellHeight;
+                int tw = Math.min(cellWidth, width - x);
+                int ye = Math.min(y + cellHeight, height);
+                for (; y < ye; y++) {
+                    row.run(x, y, tw, buf);
+                }
+            }
+        };
+        int n = Math.min(tiles, tm.getParallelism());
+        List<Runnable> s = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            s.add(worker);
+        }
+        tm.distribute(s);
+    }
+
+    @FunctionalInterface
+    private interface Row {
+
+        void run(int x, int y, int width, int[] buf);
+    }
+}
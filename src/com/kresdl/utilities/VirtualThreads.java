@@ -0,0 +1,29 @@
+package com.kresdl.utilities;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Access to virtual threads. This version is used on Java versions without
+ * virtual threads; on Java 21 and later, the multi-release JAR supplies a
+ * replacement from src-java21.
+ */
+abstract class VirtualThreads {
+
+    /**
+     * Returns true if virtual threads are available.
+     *
+     * @return false
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * Creates an executor that starts a new virtual thread for each task.
+     *
+     * @return null, as virtual threads are unavailable
+     */
+    static ExecutorService newExecutor() {
+        return null;
+    }
+}
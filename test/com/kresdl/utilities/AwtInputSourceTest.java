@@ -0,0 +1,40 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Component;
+import java.awt.EventQueue;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AwtInputSourceTest {
+
+    @SuppressWarnings("serial")
+    private static class Source extends Component {
+    }
+
+    @Test
+    public void scheduledTasksRunInTimeOrderOnDispatchThread() throws Exception {
+        AwtInputSource s = new AwtInputSource(new Source());
+        List<Integer> order = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        int[] delays = {60, 20, 40};
+        for (int i = 0; i < delays.length; i++) {
+            int k = i;
+            s.schedule(() -> {
+                assertTrue(EventQueue.isDispatchThread());
+                order.add(k);
+                done.countDown();
+            }, delays[i] * 1_000_000L);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, (int) order.get(0));
+        assertEquals(2, (int) order.get(1));
+        assertEquals(0, (int) order.get(2));
+    }
+}
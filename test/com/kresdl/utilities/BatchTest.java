@@ -0,0 +1,101 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchTest {
+
+    private TaskManager tm;
+
+    @Before
+    public void setUp() {
+        tm = new TaskManager(Executors.newFixedThreadPool(4));
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdown();
+    }
+
+    @Test
+    public void runsEveryTaskOnce() throws Exception {
+        AtomicIntegerArray hits = new AtomicIntegerArray(10_000);
+        List<Runnable> s = new ArrayList<>();
+        for (int i = 0; i < hits.length(); i++) {
+            int k = i;
+            s.add(() -> hits.incrementAndGet(k));
+        }
+        Batch b = tm.batch(s, 7);
+        b.get(5, TimeUnit.SECONDS);
+        assertEquals(hits.length(), b.getCompletedCount());
+        for (int i = 0; i < hits.length(); i++) {
+            assertEquals(1, hits.get(i));
+        }
+    }
+
+    @Test
+    public void failureIsReportedToCallerAndMetrics() throws Exception {
+        IllegalStateException x = new IllegalStateException();
+        List<Runnable> s = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            s.add(i == 50 ? () -> {
+                throw x;
+            } : () -> {
+            });
+        }
+        Batch b = tm.batch(s, 10);
+        try {
+            b.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(x, e.getCause());
+        }
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (tm.getMetrics().getFailedCount() == 0 && System.nanoTime() < end) {
+            Thread.sleep(1);
+        }
+        assertEquals(1, tm.getMetrics().getFailedCount());
+    }
+
+    @Test
+    public void cancelSucceedsOnce() throws Exception {
+        CountDownLatch gate = new CountDownLatch(1);
+        List<Runnable> s = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            s.add(() -> {
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        Batch b = tm.batch(s, 1);
+        assertTrue(b.cancel(false));
+        assertFalse(b.cancel(false));
+        assertTrue(b.isCancelled());
+        gate.countDown();
+        try {
+            b.get();
+            fail();
+        } catch (CancellationException e) {
+            // expected
+        }
+    }
+}
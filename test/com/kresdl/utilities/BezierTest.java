@@ -0,0 +1,43 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class BezierTest {
+
+    @Test
+    public void flatteningIncludesBothEndPoints() {
+        float[] xy = new float[10];
+        assertEquals(5, Bezier.cubic(0, 0, 1, 2, 3, 2, 4, 0, 4, xy, 0));
+        assertEquals(0, xy[0], 0);
+        assertEquals(0, xy[1], 0);
+        assertEquals(4, xy[8], 0);
+        assertEquals(0, xy[9], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void cubicRejectsZeroSegments() {
+        Bezier.cubic(0, 0, 1, 2, 3, 2, 4, 0, 0, new float[4], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void integerCubicRejectsZeroSegments() {
+        Bezier.cubic(0, 0, 1, 2, 3, 2, 4, 0, 0, new int[2], new int[2], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void quadRejectsZeroSegments() {
+        Bezier.quad(0, 0, 1, 2, 2, 0, 0, new float[4], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentsRejectsNaN() {
+        Bezier.segments(0, 0, Double.NaN, 2, 2, 0, 0.25d);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void segmentsRejectsInfinity() {
+        Bezier.segments(0, 0, 1, 2, Double.POSITIVE_INFINITY, 2, 4, 0, 0.25d);
+    }
+}
@@ -0,0 +1,60 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import org.junit.Test;
+
+import com.kresdl.geometry.Vec;
+
+public class CameraTest {
+
+    private static class Subject extends Camera {
+
+        Subject() {
+            super(new Vec(0, 0, 0), new Vec(0, 0, 1), 1.0d, 0.1d, 100.0d, 1.0d, false);
+        }
+
+        void lookAt(Vec t) {
+            target = t;
+            buildTransform();
+        }
+
+        void moveTo(Vec p) {
+            pos = p;
+            buildTransform();
+        }
+    }
+
+    @Test
+    public void assigningTargetKeepsPendingMove() {
+        Subject c = new Subject();
+        c.move(1, 0, 0);
+        c.lookAt(new Vec(1, 2, 0));
+        CameraState s = c.publish();
+        assertArrayEquals(new double[]{1, 0, 0}, s.getPos(new double[3]), 1e-12);
+        assertArrayEquals(new double[]{0, 1, 0}, s.getDir(new double[3]), 1e-12);
+    }
+
+    @Test
+    public void assigningPosKeepsPendingRotation() {
+        Subject c = new Subject();
+        c.rotate(Math.PI / 2, 0, 1.0d);
+        double[] d = c.publish().getDir(new double[3]);
+        c.moveTo(new Vec(0, 0, 5));
+        CameraState s = c.publish();
+        assertArrayEquals(new double[]{0, 0, 5}, s.getPos(new double[3]), 1e-12);
+        double[] e = s.getDir(new double[3]);
+        // Target stays at the old position plus direction
+        double x = d[0], y = d[1], z = d[2] - 5, l = Math.sqrt(x * x + y * y + z * z);
+        assertArrayEquals(new double[]{x / l, y / l, z / l}, e, 1e-12);
+    }
+
+    @Test
+    public void unchangedFieldsDoNotDiscardMovement() {
+        Subject c = new Subject();
+        c.getPos();
+        c.move(0, 3, 0);
+        c.buildTransform();
+        assertArrayEquals(new double[]{0, 3, 0}, c.publish().getPos(new double[3]), 1e-12);
+    }
+}
@@ -0,0 +1,64 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CoalesceTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void burstIsCoalescedOnSourceClock() {
+        SyntheticInputSource s = new SyntheticInputSource();
+        Mouse m = new Mouse(s);
+        List<Integer> x = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        m.coalesce(10).onMove(e -> {
+            x.add(e.getXOnScreen());
+            threads.add(Thread.currentThread());
+        });
+        s.show();
+        s.moveTo(1, 0);
+        s.setTime(2 * MS);
+        s.moveTo(2, 0);
+        s.setTime(5 * MS);
+        s.moveTo(3, 0);
+        assertEquals(1, x.size());
+
+        s.setTime(9 * MS);
+        assertEquals(1, x.size());
+        s.setTime(10 * MS);
+        assertEquals(2, x.size());
+        assertEquals(3, (int) x.get(1));
+
+        s.setTime(30 * MS);
+        s.moveTo(4, 0);
+        assertEquals(3, x.size());
+        for (Thread t : threads) {
+            assertSame(Thread.currentThread(), t);
+        }
+    }
+
+    @Test
+    public void movementSumsCoalescedEvents() {
+        SyntheticInputSource s = new SyntheticInputSource();
+        Mouse m = new Mouse(s);
+        List<Point> d = new ArrayList<>();
+        m.coalesce(10).onMove(e -> d.add(m.getMovement()));
+        s.show();
+        for (int i = 1; i <= 5; i++) {
+            s.setTime(i * MS);
+            s.moveBy(1, 2);
+        }
+        s.setTime(20 * MS);
+        assertEquals(2, d.size());
+        assertEquals(4, d.get(1).x);
+        assertEquals(8, d.get(1).y);
+    }
+}
@@ -0,0 +1,98 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DistributeTest {
+
+    private TaskManager tm;
+
+    @Before
+    public void setUp() {
+        tm = new TaskManager(Executors.newFixedThreadPool(3));
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdown();
+    }
+
+    @Test
+    public void firstTaskRunsOnCaller() {
+        Thread caller = Thread.currentThread();
+        Thread[] ran = new Thread[1];
+        tm.distribute(Arrays.asList(() -> ran[0] = Thread.currentThread(), () -> {
+        }));
+        assertSame(caller, ran[0]);
+    }
+
+    @Test
+    public void failureIsRethrownAfterAllTasksFinish() {
+        AtomicInteger done = new AtomicInteger();
+        IllegalStateException x = new IllegalStateException();
+        List<Runnable> s = new ArrayList<>();
+        s.add(() -> {
+            throw x;
+        });
+        for (int i = 0; i < 4; i++) {
+            s.add(() -> {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                done.incrementAndGet();
+            });
+        }
+        try {
+            tm.distribute(s);
+            fail();
+        } catch (IllegalStateException e) {
+            assertSame(x, e);
+        }
+        assertEquals(4, done.get());
+    }
+
+    @Test
+    public void laterFailuresAreSuppressed() {
+        List<Runnable> s = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            s.add(() -> {
+                throw new IllegalArgumentException();
+            });
+        }
+        try {
+            tm.distribute(s);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(2, e.getSuppressed().length);
+        }
+    }
+
+    @Test
+    public void dispatchAndAwaitReportsFailure() throws Exception {
+        IllegalStateException x = new IllegalStateException();
+        try {
+            tm.dispatchAndAwait(Arrays.asList(() -> {
+            }, () -> {
+                throw x;
+            }), 5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(x, e.getCause());
+        }
+    }
+}
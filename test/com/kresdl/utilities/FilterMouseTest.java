@@ -0,0 +1,64 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class FilterMouseTest {
+
+    @Test
+    public void filterSeesEventDeltasAndTimes() {
+        SyntheticInputSource s = new SyntheticInputSource();
+        List<long[]> seen = new ArrayList<>();
+        FilterMouse m = new FilterMouse(s, new MotionFilter() {
+            @Override
+            public void filter(long time, double dx, double dy, double[] out) {
+                seen.add(new long[]{time, (long) dx, (long) dy});
+                out[0] = dx;
+                out[1] = dy;
+            }
+
+            @Override
+            public void reset() {
+            }
+        });
+        m.onMove(e -> {
+        });
+        s.show();
+        for (int i = 1; i <= 3; i++) {
+            s.setTime(i * 1_000_000L);
+            s.moveBy(i, -i);
+        }
+        assertEquals(3, seen.size());
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(new long[]{(i + 1) * 1_000_000L, i + 1, -i - 1}, seen.get(i));
+        }
+    }
+
+    @Test
+    public void movementAddsUpUntilRead() {
+        SyntheticInputSource s = new SyntheticInputSource();
+        FilterMouse m = new FilterMouse(s, new MotionFilter.Box(2));
+        m.onMove(e -> {
+        });
+        s.show();
+        for (int i = 0; i < 3; i++) {
+            s.moveBy(2, 0);
+        }
+        double[] d = new double[2];
+        m.getMovement(d);
+        assertEquals(5, d[0], 1e-9);
+        assertEquals(0, d[1], 1e-9);
+
+        s.moveBy(2, 4);
+        m.getMovement(d);
+        assertEquals(2, d[0], 1e-9);
+        assertEquals(2, d[1], 1e-9);
+        m.getMovement(d);
+        assertEquals(0, d[0], 1e-9);
+    }
+}
@@ -0,0 +1,76 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FramePipelineTest {
+
+    private TaskManager tm;
+
+    @Before
+    public void setUp() {
+        tm = new TaskManager(Executors.newFixedThreadPool(2));
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdown();
+    }
+
+    @Test
+    public void bufferIsNotReusedBeforeRelease() throws Exception {
+        FramePipeline<int[]> p = new FramePipeline<>(tm, 2, () -> new int[1]);
+        p.addStage("count", b -> b[0]++);
+        int[] a = p.submit().get(5, TimeUnit.SECONDS);
+        int[] b = p.submit().get(5, TimeUnit.SECONDS);
+        assertEquals(2, p.getInFlight());
+        assertNull(p.trySubmit());
+
+        p.release(a);
+        int[] c = p.trySubmit().get(5, TimeUnit.SECONDS);
+        assertSame(a, c);
+        assertEquals(2, c[0]);
+        p.release(b);
+        p.release(c);
+        assertEquals(0, p.getInFlight());
+    }
+
+    @Test
+    public void failedFrameLeavesPipeline() throws Exception {
+        FramePipeline<int[]> p = new FramePipeline<>(tm, 1, () -> new int[1]);
+        IllegalStateException x = new IllegalStateException();
+        p.addStage("fail", b -> {
+            throw x;
+        });
+        try {
+            p.submit().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertSame(x, e.getCause());
+        }
+        assertNotNull(p.trySubmit());
+        p.await();
+        assertEquals(2, p.getFailedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void releasingUnheldBufferFails() throws Exception {
+        FramePipeline<int[]> p = new FramePipeline<>(tm, 1, () -> new int[1]);
+        p.addStage("noop", b -> {
+        });
+        int[] a = p.submit().get(5, TimeUnit.SECONDS);
+        p.release(a);
+        p.release(a);
+    }
+}
@@ -0,0 +1,61 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.awt.Color;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class GradientTest {
+
+    private static Gradient gradient() {
+        Gradient g = new Gradient();
+        g.set(0.5d, Color.RED);
+        return g;
+    }
+
+    @Test
+    public void viewsWriteThroughAndInvalidate() {
+        Gradient g = gradient();
+        int before = g.sampleARGB(0.5d);
+        g.keySet().removeIf(k -> k == 0.5d);
+        assertEquals(2, g.size());
+        assertNotEquals(before, g.sampleARGB(0.5d));
+
+        g = gradient();
+        before = g.sampleARGB(0.5d);
+        g.headMap(0.9d, false).descendingMap().headMap(0.1d, false).clear();
+        assertEquals(2, g.size());
+        assertNotEquals(before, g.sampleARGB(0.5d));
+
+        g = gradient();
+        before = g.sampleARGB(0.5d);
+        for (Map.Entry<Double, Color> e : g.entrySet()) {
+            if (e.getKey() == 0.5d) {
+                e.setValue(Color.BLUE);
+            }
+        }
+        assertEquals(Color.BLUE, g.get((Object) 0.5d));
+        assertNotEquals(before, g.sampleARGB(0.5d));
+
+        g = gradient();
+        before = g.sampleARGB(0.5d);
+        Iterator<Color> it = g.values().iterator();
+        it.next();
+        it.next();
+        it.remove();
+        assertEquals(2, g.size());
+        assertNotEquals(before, g.sampleARGB(0.5d));
+    }
+
+    @Test
+    public void copyMatchesOriginal() {
+        Gradient g = gradient();
+        Gradient c = new Gradient(g);
+        assertEquals(g, c);
+        assertEquals(g.sampleARGB(0.25d), c.sampleARGB(0.25d));
+    }
+}
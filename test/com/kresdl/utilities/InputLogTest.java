@@ -0,0 +1,105 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class InputLogTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static long[] snapshot(long time, MouseEvent e) {
+        return new long[]{time, e.getID(), e.getXOnScreen(), e.getYOnScreen(), e.getModifiersEx(), e.getButton()};
+    }
+
+    private static void collect(InputSource s, List<long[]> out) {
+        MouseAdapter a = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                out.add(snapshot(s.getTime(e), e));
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                out.add(snapshot(s.getTime(e), e));
+            }
+
+            @Override
+            public void mouseMoved(MouseEvent e) {
+                out.add(snapshot(s.getTime(e), e));
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                out.add(snapshot(s.getTime(e), e));
+            }
+        };
+        s.addMouseListener(a);
+        s.addMouseMotionListener(a);
+    }
+
+    @Test
+    public void recordingReplaysIdentically() throws IOException {
+        Path path = tmp.getRoot().toPath().resolve("input.log");
+        SyntheticInputSource s = new SyntheticInputSource();
+        List<long[]> recorded = new ArrayList<>();
+        collect(s, recorded);
+        try (InputLog log = InputLog.create(path)) {
+            new Mouse(s).record(log);
+            for (int i = 0; i < 1500; i++) {
+                s.setTime(i * 3_000_000L);
+                if (i % 100 == 10) {
+                    s.press(i % 3);
+                } else if (i % 100 == 20) {
+                    s.release((i - 10) % 3);
+                } else {
+                    s.moveBy(i % 7 - 3, i % 5 - 2);
+                }
+            }
+            assertEquals(1500, log.size());
+        }
+        assertTrue(Files.size(path) >= 16 + 1500 * 36);
+
+        List<long[]> replayed = new ArrayList<>();
+        try (InputLog log = InputLog.open(path)) {
+            assertEquals(1500, log.size());
+            InputReplay r = new InputReplay(log);
+            collect(r, replayed);
+            assertEquals(1500, r.replay());
+            assertTrue(r.isDone());
+        }
+        assertEquals(recorded.size(), replayed.size());
+        for (int i = 0; i < recorded.size(); i++) {
+            long[] a = recorded.get(i), b = replayed.get(i);
+            assertEquals(a[0] - recorded.get(0)[0], b[0]);
+            for (int k = 1; k < a.length; k++) {
+                assertEquals("record " + i, a[k], b[k]);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsForeignFile() throws IOException {
+        Path path = tmp.newFile().toPath();
+        Files.write(path, new byte[64]);
+        try {
+            InputLog.open(path).close();
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class LaneSchedulerTest {
+
+    private TaskManager tm;
+
+    @After
+    public void tearDown() {
+        tm.shutdown();
+    }
+
+    // Single worker held by a gate task, so that submissions queue up
+    private CountDownLatch block(ExecutorService s) throws InterruptedException {
+        tm = new TaskManager(s);
+        CountDownLatch started = new CountDownLatch(1), gate = new CountDownLatch(1);
+        tm.submit(() -> {
+            started.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return gate;
+    }
+
+    private String drain(CountDownLatch gate, StringBuffer order, int n) throws InterruptedException {
+        gate.countDown();
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (order.length() < n && System.nanoTime() < end) {
+            Thread.sleep(1);
+        }
+        return order.toString();
+    }
+
+    @Test
+    public void higherLanesRunFirst() throws Exception {
+        CountDownLatch gate = block(Executors.newSingleThreadExecutor());
+        tm.setStarvationLimit(1, TimeUnit.HOURS);
+        StringBuffer order = new StringBuffer();
+        tm.submit(() -> order.append('B'), TaskManager.Priority.BACKGROUND);
+        tm.submit(() -> order.append('N'), TaskManager.Priority.NORMAL);
+        tm.submit(() -> order.append('I'), TaskManager.Priority.INTERACTIVE);
+        tm.submit(() -> order.append('n'), TaskManager.Priority.NORMAL);
+        assertEquals("INnB", drain(gate, order, 4));
+    }
+
+    @Test
+    public void agedTasksAreServedButBounded() throws Exception {
+        CountDownLatch gate = block(Executors.newSingleThreadExecutor());
+        tm.setStarvationLimit(0, TimeUnit.NANOSECONDS);
+        StringBuffer order = new StringBuffer();
+        for (int i = 0; i < 10; i++) {
+            tm.submit(() -> order.append('B'), TaskManager.Priority.BACKGROUND);
+        }
+        for (int i = 0; i < 12; i++) {
+            tm.submit(() -> order.append('I'), TaskManager.Priority.INTERACTIVE);
+        }
+        Thread.sleep(2);
+        String s = drain(gate, order, 22);
+        String head = s.substring(0, s.lastIndexOf('I') + 1);
+        int aged = head.length() - head.replace("B", "").length();
+        assertTrue(s, aged >= 1);
+        assertTrue(s, aged <= 12 / 4 + 1);
+        assertTrue(s, !head.contains("BB"));
+    }
+
+    @Test
+    public void executeReportsFailures() throws Exception {
+        AtomicReference<Throwable> caught = new AtomicReference<>();
+        CountDownLatch reported = new CountDownLatch(1);
+        tm = new TaskManager(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setUncaughtExceptionHandler((th, e) -> {
+                caught.set(e);
+                reported.countDown();
+            });
+            return t;
+        }));
+        IllegalStateException x = new IllegalStateException();
+        tm.execute(() -> {
+            throw x;
+        });
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        assertSame(x, caught.get());
+    }
+
+    @Test
+    public void cancelledTaskHoldsPermitUntilItLeavesLane() throws Exception {
+        ExecutorService s = Executors.newSingleThreadExecutor();
+        tm = new TaskManager(s);
+        tm.setInFlightLimit(2, TaskManager.Overflow.REJECT);
+        CountDownLatch gate = new CountDownLatch(1);
+        tm.submit(() -> {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        Future<?> f = tm.submit(() -> {
+        });
+        f.cancel(false);
+        assertNull(tm.trySubmit(() -> {
+        }));
+        gate.countDown();
+        Future<?> g = null;
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (g == null && System.nanoTime() < end) {
+            g = tm.trySubmit(() -> {
+            });
+            Thread.sleep(1);
+        }
+        assertNotNull(g);
+    }
+
+    @Test
+    public void rejectionsAreNotCountedAsSubmitted() throws Exception {
+        CountDownLatch gate = block(Executors.newSingleThreadExecutor());
+        tm.setInFlightLimit(1, TaskManager.Overflow.REJECT);
+        tm.submit(() -> {
+        });
+        for (int i = 0; i < 3; i++) {
+            try {
+                tm.submit(() -> {
+                });
+                fail();
+            } catch (RejectedExecutionException e) {
+                // expected
+            }
+        }
+        gate.countDown();
+        assertEquals(2, tm.getMetrics().getSubmittedCount());
+        assertEquals(3, tm.getMetrics().getRejectedCount());
+    }
+
+    @Test
+    public void interruptedBlockIsNotCountedAsSubmitted() throws Exception {
+        CountDownLatch gate = block(Executors.newSingleThreadExecutor());
+        tm.setInFlightLimit(1, TaskManager.Overflow.BLOCK);
+        tm.submit(() -> {
+        });
+        Thread.currentThread().interrupt();
+        try {
+            tm.submit(() -> {
+            });
+            fail();
+        } catch (RejectedExecutionException e) {
+            assertTrue(Thread.interrupted());
+        }
+        gate.countDown();
+        assertEquals(2, tm.getMetrics().getSubmittedCount());
+        assertEquals(1, tm.getMetrics().getRejectedCount());
+    }
+}
@@ -0,0 +1,94 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class MouseRingTest {
+
+    @Test
+    public void capacityIsRoundedUp() {
+        assertEquals(8, new MouseRing(5).capacity());
+        assertEquals(8, new MouseRing(8).capacity());
+    }
+
+    @Test
+    public void wrapsAroundInOrder() {
+        MouseRing r = new MouseRing(4);
+        long[] time = new long[4];
+        int[] dx = new int[4], dy = new int[4];
+        long next = 0, expected = 0;
+        for (int round = 0; round < 100; round++) {
+            int k = round % 4 + 1;
+            for (int i = 0; i < k; i++, next++) {
+                assertTrue(r.offer(next, (int) next, (int) -next));
+            }
+            assertEquals(k, r.size());
+            int n = r.drain(time, dx, dy, 0, 4);
+            assertEquals(k, n);
+            for (int i = 0; i < n; i++, expected++) {
+                assertEquals(expected, time[i]);
+                assertEquals(expected, dx[i]);
+                assertEquals(-expected, dy[i]);
+            }
+        }
+        assertEquals(0, r.size());
+    }
+
+    @Test
+    public void overflowIsCarriedWithoutLoss() {
+        MouseRing r = new MouseRing(4);
+        for (int i = 0; i < 10; i++) {
+            r.offer(i, 1, -2);
+        }
+        assertEquals(6, r.getOverflowCount());
+        int[] d = new int[2];
+        assertEquals(5, r.drainSum(d));
+        assertEquals(10, d[0]);
+        assertEquals(-20, d[1]);
+        assertEquals(0, r.drainSum(d));
+    }
+
+    @Test
+    public void carryIsDeliveredInTimeOrder() {
+        MouseRing r = new MouseRing(4);
+        for (int i = 0; i < 6; i++) {
+            r.offer(i, 1, 1);
+        }
+        // Partial drain leaves the carry behind the remaining samples
+        long[] time = new long[8];
+        int[] dx = new int[8], dy = new int[8];
+        assertEquals(2, r.drain(time, dx, dy, 0, 2));
+        assertTrue(r.offer(6, 1, 1));
+        assertTrue(r.offer(7, 1, 1));
+
+        List<long[]> out = new ArrayList<>();
+        r.drain((t, x, y) -> out.add(new long[]{t, x, y}));
+        long last = 1, sum = 2;
+        for (long[] s : out) {
+            assertTrue(s[0] >= last);
+            last = s[0];
+            sum += s[1];
+        }
+        assertEquals(8, sum);
+        assertEquals(7, last);
+    }
+
+    @Test
+    public void carryIsDrainedWithoutFurtherOffers() {
+        MouseRing r = new MouseRing(2);
+        r.offer(0, 1, 0);
+        r.offer(1, 1, 0);
+        assertFalse(r.offer(2, 3, 4));
+        List<long[]> out = new ArrayList<>();
+        assertEquals(3, r.drain((t, x, y) -> out.add(new long[]{t, x, y})));
+        assertEquals(2, out.get(2)[0]);
+        assertEquals(3, out.get(2)[1]);
+        assertEquals(4, out.get(2)[2]);
+    }
+}
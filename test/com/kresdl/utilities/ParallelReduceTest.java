@@ -0,0 +1,87 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ParallelReduceTest {
+
+    private TaskManager tm;
+
+    @Before
+    public void setUp() {
+        tm = new TaskManager(Executors.newFixedThreadPool(4));
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdown();
+    }
+
+    @Test
+    public void objectReduceSumsEveryIndex() {
+        for (int k = 0; k < 200; k++) {
+            long sum = tm.parallelReduce(0, 100_000, 64, 0L, (s, e) -> {
+                long a = 0;
+                for (int i = s; i < e; i++) {
+                    a += i;
+                }
+                return a;
+            }, Long::sum);
+            assertEquals(99_999L * 100_000 / 2, sum);
+        }
+    }
+
+    @Test
+    public void doubleReduceSumsEveryIndex() {
+        for (int k = 0; k < 200; k++) {
+            double sum = tm.parallelReduce(1, 10_001, 16, 0.0d, i -> i, Double::sum);
+            assertEquals(10_000.0d * 10_001 / 2, sum, 0.0d);
+        }
+    }
+
+    @Test
+    public void reduceOfEmptyRangeIsIdentity() {
+        assertEquals(Integer.valueOf(7), tm.parallelReduce(5, 5, 1, 7, (s, e) -> 1, Integer::sum));
+        assertEquals(-1.0d, tm.parallelReduce(5, 3, 1, -1.0d, i -> 1, Double::sum), 0.0d);
+    }
+
+    @Test
+    public void parallelForVisitsEveryIndexOnce() {
+        AtomicIntegerArray hits = new AtomicIntegerArray(50_000);
+        tm.parallelFor(0, hits.length(), 32, hits::incrementAndGet);
+        for (int i = 0; i < hits.length(); i++) {
+            assertEquals(1, hits.get(i));
+        }
+    }
+
+    @Test
+    public void failureIsRethrown() {
+        try {
+            tm.parallelReduce(0, 10_000, 8, 0.0d, i -> {
+                if (i == 4321) {
+                    throw new IllegalStateException("boom");
+                }
+                return i;
+            }, Double::sum);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("boom", e.getMessage());
+        }
+    }
+
+    @Test
+    public void wideRangeIsSplit() {
+        ParallelRange r = new ParallelRange(Integer.MIN_VALUE, Integer.MAX_VALUE, 1, 4);
+        long c = r.claim();
+        long s = c >> 32, e = (int) c;
+        assertEquals(Integer.MIN_VALUE, s);
+        assertEquals((1L << 32) / 8, e - s, 1);
+    }
+}
@@ -0,0 +1,85 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class PathBatchTest {
+
+    @Test
+    public void lineHasTwoPoints() {
+        PathBatch b = new PathBatch(1);
+        b.addLine(1, 2, 3, 4);
+        b.flatten(0.25);
+        assertEquals(2, b.getPointCount(0));
+        assertArrayEquals(new float[]{1, 2, 3, 4}, Arrays.copyOf(b.getCoords(), 4), 0);
+    }
+
+    @Test
+    public void curvesEndAtEndPoints() {
+        PathBatch b = new PathBatch(2);
+        b.addQuad(0, 0, 50, 100, 100, 0);
+        b.addCubic(0, 0, 0, 100, 100, 100, 100, 0);
+        b.flatten(0.25);
+        float[] xy = b.getCoords();
+        for (int s = 0; s < 2; s++) {
+            int first = b.getOffset(s), last = b.getOffset(s + 1) - 1;
+            assertTrue(b.getPointCount(s) > 2);
+            assertEquals(0, xy[2 * first], 1e-4);
+            assertEquals(0, xy[2 * first + 1], 1e-4);
+            assertEquals(100, xy[2 * last], 1e-3);
+            assertEquals(0, xy[2 * last + 1], 1e-3);
+        }
+    }
+
+    @Test
+    public void finerToleranceGivesMorePoints() {
+        PathBatch b = new PathBatch(1);
+        b.addCubic(0, 0, 0, 100, 100, 100, 100, 0);
+        b.flatten(1);
+        int coarse = b.getPointCount(0);
+        b.flatten(0.01);
+        assertTrue(b.getPointCount(0) > coarse);
+    }
+
+    @Test
+    public void parallelMatchesSerial() {
+        PathBatch b = new PathBatch(16);
+        for (int i = 0; i < 1000; i++) {
+            switch (i % 3) {
+                case 0:
+                    b.addLine(i, 0, i + 1, 1);
+                    break;
+                case 1:
+                    b.addQuad(i, 0, i + 5, 20, i + 10, 0);
+                    break;
+                default:
+                    b.addCubic(i, 0, i, 30, i + 30, 30, i + 30, 0);
+            }
+        }
+        b.flatten(0.1);
+        int n = b.getOffset(b.size());
+        float[] serial = Arrays.copyOf(b.getCoords(), 2 * n);
+
+        TaskManager tm = new TaskManager(Executors.newFixedThreadPool(4));
+        try {
+            b.flatten(0.1, tm);
+        } finally {
+            tm.shutdown();
+        }
+        assertEquals(n, b.getOffset(b.size()));
+        assertArrayEquals(serial, Arrays.copyOf(b.getCoords(), 2 * n), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveToleranceIsRejected() {
+        PathBatch b = new PathBatch(1);
+        b.addCubic(0, 0, 0, 100, 100, 100, 100, 0);
+        b.flatten(0);
+    }
+}
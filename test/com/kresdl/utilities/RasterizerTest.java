@@ -0,0 +1,77 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class RasterizerTest {
+
+    private static final int W = 16, H = 16;
+
+    private static int count(int[] p, int argb) {
+        int n = 0;
+        for (int v : p) {
+            if (v == argb) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @Test
+    public void sharedEdgeCoversEveryPixelOnce() {
+        // The diagonal passes exactly through pixel centers
+        int[] a = new int[W * H], b = new int[W * H];
+        new Rasterizer(a, W, H).triangle(0, 0, 0, 8, 0, 0, 8, 8, 0, 1);
+        new Rasterizer(b, W, H).triangle(0, 0, 0, 8, 8, 0, 0, 8, 0, 1);
+        for (int i = 0; i < W * H; i++) {
+            int x = i % W, y = i / W;
+            int expected = x < 8 && y < 8 ? 1 : 0;
+            assertEquals("pixel " + x + "," + y, expected, a[i] + b[i]);
+        }
+    }
+
+    @Test
+    public void adjacentQuadsDoNotOverlap() {
+        int[] a = new int[W * H], b = new int[W * H];
+        new Rasterizer(a, W, H).quad(0.5, 0.5, 0, 6.5, 0.5, 0, 6.5, 9.5, 0, 0.5, 9.5, 0, 1);
+        new Rasterizer(b, W, H).quad(6.5, 0.5, 0, 12.5, 0.5, 0, 12.5, 9.5, 0, 6.5, 9.5, 0, 1);
+        for (int i = 0; i < W * H; i++) {
+            assertEquals(i + "", 0, a[i] & b[i]);
+        }
+        assertEquals(12 * 9, count(a, 1) + count(b, 1));
+    }
+
+    @Test
+    public void windingDoesNotMatter() {
+        int[] a = new int[W * H], b = new int[W * H];
+        new Rasterizer(a, W, H).triangle(1, 1, 0, 14, 3, 0, 5, 13, 0, 1);
+        new Rasterizer(b, W, H).triangle(1, 1, 0, 5, 13, 0, 14, 3, 0, 1);
+        assertEquals(Arrays.toString(a), Arrays.toString(b));
+    }
+
+    @Test
+    public void hugeTriangleIsClippedToGuardBand() {
+        int[] p = new int[W * H];
+        float[] z = new float[W * H];
+        Rasterizer r = new Rasterizer(p, W, H);
+        r.setDepthBuffer(z);
+        r.clear(0);
+        r.triangle(0, 0, 0, 4e9, 0, 4e9, 0, 4e9, 0, 1);
+        assertEquals(W * H, count(p, 1));
+        for (int i = 0; i < W * H; i++) {
+            assertEquals(i % W + 0.5, z[i], 1e-3);
+        }
+    }
+
+    @Test
+    public void nonFiniteTriangleIsSkipped() {
+        int[] p = new int[W * H];
+        Rasterizer r = new Rasterizer(p, W, H);
+        r.triangle(0, 0, 0, Double.NaN, 8, 0, 8, 8, 0, 1);
+        r.triangle(0, 0, 0, Double.POSITIVE_INFINITY, 0, 0, 8, 8, 0, 1);
+        assertEquals(0, count(p, 1));
+    }
+}
@@ -0,0 +1,56 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.awt.EventQueue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class SyntheticInputSourceTest {
+
+    @Test
+    public void coalescedInputNeverTouchesDispatchThread() {
+        Set<Thread> before = dispatchThreads();
+        SyntheticInputSource s = new SyntheticInputSource();
+        List<Thread> threads = new ArrayList<>();
+        Runnable check = () -> {
+            assertFalse(EventQueue.isDispatchThread());
+            threads.add(Thread.currentThread());
+        };
+        new Mouse(s).coalesce(5).onMove(e -> check.run()).onDrag(0, e -> check.run());
+        new FilterMouse(s).coalesce(5).onMove(e -> check.run());
+        s.show();
+        for (int i = 1; i <= 40; i++) {
+            s.setTime(i * 1_000_000L);
+            if (i == 20) {
+                s.press(0);
+            }
+            s.moveBy(1, 1);
+        }
+        s.release(0);
+        s.setTime(100_000_000L);
+
+        assertFalse(threads.isEmpty());
+        for (Thread t : threads) {
+            assertSame(Thread.currentThread(), t);
+        }
+        assertEquals(before, dispatchThreads());
+    }
+
+    // Another test in the same JVM may already have started one
+    private static Set<Thread> dispatchThreads() {
+        Set<Thread> s = new HashSet<>();
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("AWT-EventQueue")) {
+                s.add(t);
+            }
+        }
+        return s;
+    }
+}
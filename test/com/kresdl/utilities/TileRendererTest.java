@@ -0,0 +1,94 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TileRendererTest {
+
+    private static final int W = 100, H = 70, N = 300;
+
+    private TaskManager tm;
+    private double[] v;
+    private int[] c;
+
+    @Before
+    public void setUp() {
+        tm = new TaskManager(Executors.newFixedThreadPool(4));
+        Random r = new Random(7);
+        v = new double[9 * N];
+        c = new int[N];
+        for (int i = 0; i < v.length; i += 3) {
+            v[i] = r.nextDouble() * (W + 40) - 20;
+            v[i + 1] = r.nextDouble() * (H + 40) - 20;
+            v[i + 2] = r.nextDouble();
+        }
+        for (int i = 0; i < N; i++) {
+            c[i] = 0xff000000 | r.nextInt();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdown();
+    }
+
+    private int[] reference(float[] depth) {
+        int[] p = new int[W * H];
+        Rasterizer r = new Rasterizer(p, W, H);
+        r.setDepthBuffer(depth);
+        r.clear(0xff000000);
+        for (int i = 0, j = 0; i < N; i++, j += 9) {
+            r.triangle(v[j], v[j + 1], v[j + 2], v[j + 3], v[j + 4], v[j + 5], v[j + 6], v[j + 7], v[j + 8], c[i]);
+        }
+        return p;
+    }
+
+    private int[] render(TileRenderer t, float[] depth) {
+        t.clear();
+        for (int i = 0, j = 0; i < N; i++, j += 9) {
+            t.add(v[j], v[j + 1], v[j + 2], v[j + 3], v[j + 4], v[j + 5], v[j + 6], v[j + 7], v[j + 8], c[i]);
+        }
+        int[] p = new int[W * H];
+        t.render(p, depth, W, H, 0xff000000);
+        return p;
+    }
+
+    @Test
+    public void deterministicMatchesSerialWithoutDepth() {
+        TileRenderer t = new TileRenderer(tm, 16);
+        assertArrayEquals(reference(null), render(t, null));
+    }
+
+    @Test
+    public void deterministicMatchesSerialWithDepth() {
+        TileRenderer t = new TileRenderer(tm, 13);
+        assertArrayEquals(reference(new float[W * H]), render(t, new float[W * H]));
+    }
+
+    @Test
+    public void unorderedMatchesSerialWithDepth() {
+        // Distinct depths make the result independent of drawing order
+        TileRenderer t = new TileRenderer(tm, 8);
+        t.setDeterministic(false);
+        int[] expected = reference(new float[W * H]);
+        for (int k = 0; k < 5; k++) {
+            assertArrayEquals(expected, render(t, new float[W * H]));
+        }
+    }
+
+    @Test
+    public void emptyFramebufferRendersNothing() {
+        TileRenderer t = new TileRenderer(tm, 16);
+        t.add(0, 0, 0, 10, 0, 0, 0, 10, 0, 0xffffffff);
+        t.render(new int[0], null, 0, 0, 0);
+        t.render(new int[0], null, W, 0, 0);
+        assertEquals(2, t.getFrameCount());
+    }
+}
@@ -0,0 +1,67 @@
+package com.kresdl.utilities;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TiledColorizerTest {
+
+    private static final int W = 203, H = 61;
+
+    private TaskManager tm;
+    private BakedGradient g;
+    private double[] field;
+
+    @Before
+    public void setUp() {
+        tm = new TaskManager(Executors.newFixedThreadPool(4));
+        Gradient gr = new Gradient();
+        gr.setStart(Color.BLACK);
+        gr.setEnd(Color.WHITE);
+        g = gr.bake(Gradient.DEFAULT_SAMPLES);
+        Random r = new Random(3);
+        field = new double[W * H];
+        for (int i = 0; i < field.length; i++) {
+            field[i] = r.nextDouble();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        tm.shutdown();
+    }
+
+    private void assertMatchesSerial(int type) {
+        BufferedImage expected = new BufferedImage(W, H, type);
+        int[] row = new int[W];
+        for (int y = 0; y < H; y++) {
+            g.colorize(field, y * W, row, 0, W);
+            expected.setRGB(0, y, W, 1, row, 0, W);
+        }
+        for (int k = 0; k < 10; k++) {
+            BufferedImage img = new TiledColorizer(tm, 3).colorize(field, g, new BufferedImage(W, H, type));
+            for (int y = 0; y < H; y++) {
+                for (int x = 0; x < W; x++) {
+                    assertEquals(x + "," + y, expected.getRGB(x, y), img.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void packedRasterMatchesSerial() {
+        assertMatchesSerial(BufferedImage.TYPE_BYTE_BINARY);
+    }
+
+    @Test
+    public void intRasterMatchesSerial() {
+        assertMatchesSerial(BufferedImage.TYPE_INT_ARGB);
+    }
+}